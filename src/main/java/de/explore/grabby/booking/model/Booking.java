@@ -1,6 +1,7 @@
 package de.explore.grabby.booking.model;
 
 import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.service.BookingWriteListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.CreationTimestamp;
@@ -9,10 +10,11 @@ import java.io.Serializable;
 import java.time.LocalDate;
 
 @Entity
+@EntityListeners(BookingWriteListener.class)
 public class Booking implements Serializable {
   @Id
   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "BOOKING_SEQ")
-  @SequenceGenerator(name = "BOOKING_SEQ", sequenceName = "BOOKING_TABLE_SEQ", allocationSize = 1)
+  @SequenceGenerator(name = "BOOKING_SEQ", sequenceName = "BOOKING_TABLE_SEQ", allocationSize = 50)
   @Column(name = "id")
   private int id;
 
@@ -69,6 +71,10 @@ public class Booking implements Serializable {
     return bookingEntity;
   }
 
+  public void setBookingEntity(BookingEntity bookingEntity) {
+    this.bookingEntity = bookingEntity;
+  }
+
   public LocalDate getStartDate() {
     return startDate;
   }
@@ -85,6 +91,10 @@ public class Booking implements Serializable {
     this.endDate = endDate;
   }
 
+  public LocalDate getBookingDate() {
+    return bookingDate;
+  }
+
   public void setBookingDate(LocalDate bookingDate) {
     this.bookingDate = bookingDate;
   }
@@ -0,0 +1,77 @@
+package de.explore.grabby.booking.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A content addressed file in S3 together with the number of images and menu cards that reference it. Files without
+ * references are orphans that can be removed from the bucket.
+ */
+@Entity
+@IdClass(StoredFile.Key.class)
+public class StoredFile {
+
+  @Id
+  private String bucket;
+
+  @Id
+  private String filename;
+
+  @Column(name = "reference_count")
+  private int referenceCount;
+
+  @Column(name = "has_variants")
+  private boolean hasVariants;
+
+  public String getBucket() {
+    return bucket;
+  }
+
+  public String getFilename() {
+    return filename;
+  }
+
+  public int getReferenceCount() {
+    return referenceCount;
+  }
+
+  public boolean getHasVariants() {
+    return hasVariants;
+  }
+
+  public static class Key implements Serializable {
+
+    private String bucket;
+
+    private String filename;
+
+    public Key() {
+    }
+
+    public Key(String bucket, String filename) {
+      this.bucket = bucket;
+      this.filename = filename;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key key)) {
+        return false;
+      }
+      return Objects.equals(bucket, key.bucket) && Objects.equals(filename, key.filename);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(bucket, filename);
+    }
+  }
+}
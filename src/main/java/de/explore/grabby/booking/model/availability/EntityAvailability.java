@@ -0,0 +1,53 @@
+package de.explore.grabby.booking.model.availability;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class EntityAvailability {
+  private long entityId;
+
+  private LocalDate from;
+
+  private LocalDate to;
+
+  private List<LocalDate> bookedDays;
+
+  public EntityAvailability(long entityId, LocalDate from, LocalDate to, List<LocalDate> bookedDays) {
+    this.entityId = entityId;
+    this.from = from;
+    this.to = to;
+    this.bookedDays = bookedDays;
+  }
+
+  public long getEntityId() {
+    return entityId;
+  }
+
+  public void setEntityId(long entityId) {
+    this.entityId = entityId;
+  }
+
+  public LocalDate getFrom() {
+    return from;
+  }
+
+  public void setFrom(LocalDate from) {
+    this.from = from;
+  }
+
+  public LocalDate getTo() {
+    return to;
+  }
+
+  public void setTo(LocalDate to) {
+    this.to = to;
+  }
+
+  public List<LocalDate> getBookedDays() {
+    return bookedDays;
+  }
+
+  public void setBookedDays(List<LocalDate> bookedDays) {
+    this.bookedDays = bookedDays;
+  }
+}
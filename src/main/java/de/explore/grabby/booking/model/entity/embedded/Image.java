@@ -1,6 +1,11 @@
 package de.explore.grabby.booking.model.entity.embedded;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 
 @Embeddable
 public class Image {
@@ -9,6 +14,14 @@ public class Image {
 
   private String bucket;
 
+  @Enumerated(EnumType.STRING)
+  @Column(name = "image_status")
+  private ImageStatus status;
+
+  // the upload that is being processed, only the latest upload may replace the image
+  @Column(name = "image_upload")
+  private String upload;
+
   public String getFilename() {
     return filename;
   }
@@ -24,4 +37,21 @@ public class Image {
   public void setBucket(String bucket) {
     this.bucket = bucket;
   }
+
+  public ImageStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(ImageStatus status) {
+    this.status = status;
+  }
+
+  @JsonIgnore
+  public String getUpload() {
+    return upload;
+  }
+
+  public void setUpload(String upload) {
+    this.upload = upload;
+  }
 }
@@ -0,0 +1,8 @@
+package de.explore.grabby.booking.model.event;
+
+public enum BookingChangeType {
+  CREATED,
+  CANCELLED,
+  RETURNED,
+  EXTENDED
+}
@@ -0,0 +1,75 @@
+package de.explore.grabby.booking.model.event;
+
+import de.explore.grabby.booking.model.Booking;
+import de.explore.grabby.booking.model.news.BookingSummary;
+
+import java.time.LocalDate;
+
+/**
+ * Snapshot of a booking after it was changed by the {@link de.explore.grabby.booking.repository.BookingRepository}.
+ * Observers should listen with {@code TransactionPhase.AFTER_SUCCESS} so they only see committed changes.
+ */
+public class BookingChangedEvent {
+
+  private final BookingChangeType type;
+
+  private final long bookingId;
+
+  private final long entityId;
+
+  private final String userId;
+
+  private final LocalDate startDate;
+
+  private final LocalDate endDate;
+
+  private final boolean active;
+
+  private final BookingSummary summary;
+
+  public BookingChangedEvent(BookingChangeType type, Booking booking) {
+    this.type = type;
+    this.bookingId = booking.getId();
+    this.entityId = booking.getBookingEntity().getId();
+    this.userId = booking.getUserId();
+    this.startDate = booking.getStartDate();
+    this.endDate = booking.getEndDate();
+    this.active = !Boolean.TRUE.equals(booking.getIsCancelled()) && !Boolean.TRUE.equals(booking.getIsReturned());
+    this.summary = BookingSummary.of(booking);
+  }
+
+  public BookingChangeType getType() {
+    return type;
+  }
+
+  public long getBookingId() {
+    return bookingId;
+  }
+
+  public long getEntityId() {
+    return entityId;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public LocalDate getStartDate() {
+    return startDate;
+  }
+
+  public LocalDate getEndDate() {
+    return endDate;
+  }
+
+  public boolean isActive() {
+    return active;
+  }
+
+  /**
+   * Returns the booking as it was when the event was fired, observers can use it without querying the database.
+   */
+  public BookingSummary getSummary() {
+    return summary;
+  }
+}
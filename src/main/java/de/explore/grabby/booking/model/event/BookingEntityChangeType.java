@@ -0,0 +1,8 @@
+package de.explore.grabby.booking.model.event;
+
+public enum BookingEntityChangeType {
+  ADDED,
+  UPDATED,
+  ARCHIVED,
+  UNARCHIVED
+}
@@ -0,0 +1,38 @@
+package de.explore.grabby.booking.model.event;
+
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.news.NewEntity;
+
+/**
+ * Fired by the booking entity repositories whenever an entity was added or changed.
+ * Observers should listen with {@code TransactionPhase.AFTER_SUCCESS} so they only see committed changes.
+ */
+public class BookingEntityChangedEvent {
+
+  private final BookingEntityChangeType type;
+
+  private final long entityId;
+
+  private final NewEntity snapshot;
+
+  public BookingEntityChangedEvent(BookingEntityChangeType type, BookingEntity entity) {
+    this.type = type;
+    this.entityId = entity.getId();
+    this.snapshot = NewEntity.of(entity);
+  }
+
+  public BookingEntityChangeType getType() {
+    return type;
+  }
+
+  public long getEntityId() {
+    return entityId;
+  }
+
+  /**
+   * Returns the entity as it was when the event was fired, observers can use it without querying the database.
+   */
+  public NewEntity getSnapshot() {
+    return snapshot;
+  }
+}
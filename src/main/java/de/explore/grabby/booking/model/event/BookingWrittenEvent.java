@@ -0,0 +1,20 @@
+package de.explore.grabby.booking.model.event;
+
+/**
+ * Fired by {@link de.explore.grabby.booking.service.BookingWriteListener} for every booking that is persisted,
+ * updated or removed, also outside the repository methods that fire {@link BookingChangedEvent}s. It is fired while
+ * the transaction is still running, caches should drop their entries of the user then and again with
+ * {@code TransactionPhase.AFTER_COMPLETION}.
+ */
+public class BookingWrittenEvent {
+
+  private final String userId;
+
+  public BookingWrittenEvent(String userId) {
+    this.userId = userId;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+}
@@ -0,0 +1,40 @@
+package de.explore.grabby.booking.model.image;
+
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Read-only projection of the image of a booking entity, so that image lookups do not load the whole entities.
+ */
+@RegisterForReflection
+public class EntityImage {
+  private final long entityId;
+
+  private final Image image;
+
+  private final boolean hasVariants;
+
+  public EntityImage(Integer id, String filename, String bucket, ImageStatus status, Boolean hasVariants) {
+    this.entityId = id;
+    this.image = new Image();
+    this.image.setFilename(filename);
+    this.image.setBucket(bucket);
+    this.image.setStatus(status);
+    this.hasVariants = Boolean.TRUE.equals(hasVariants);
+  }
+
+  public long getEntityId() {
+    return entityId;
+  }
+
+  public Image getImage() {
+    return image;
+  }
+
+  /**
+   * Whether the scaled variants of the image were stored.
+   */
+  public boolean getHasVariants() {
+    return hasVariants;
+  }
+}
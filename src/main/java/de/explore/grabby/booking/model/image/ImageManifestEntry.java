@@ -0,0 +1,63 @@
+package de.explore.grabby.booking.model.image;
+
+/**
+ * Where the client finds the image of an entity and how it can validate its cached copy, without requesting the
+ * image itself.
+ */
+public class ImageManifestEntry {
+  private final long entityId;
+
+  private final String key;
+
+  private final String variant;
+
+  private final String etag;
+
+  private final String url;
+
+  private final ImageStatus status;
+
+  private final boolean isDefault;
+
+  public ImageManifestEntry(long entityId, String key, String variant, String etag, String url, ImageStatus status,
+                            boolean isDefault) {
+    this.entityId = entityId;
+    this.key = key;
+    this.variant = variant;
+    this.etag = etag;
+    this.url = url;
+    this.status = status;
+    this.isDefault = isDefault;
+  }
+
+  public long getEntityId() {
+    return entityId;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * The requested image size: 128, 512 or original.
+   */
+  public String getVariant() {
+    return variant;
+  }
+
+  public String getEtag() {
+    return etag;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public ImageStatus getStatus() {
+    return status;
+  }
+
+  public boolean getIsDefault() {
+    return isDefault;
+  }
+}
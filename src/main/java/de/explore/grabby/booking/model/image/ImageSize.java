@@ -0,0 +1,45 @@
+package de.explore.grabby.booking.model.image;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Sizes in which uploaded images are stored. Scaled variants are stored next to the original under a derived key.
+ */
+public enum ImageSize {
+  SMALL("128", 128),
+  MEDIUM("512", 512),
+  ORIGINAL("original", 0);
+
+  private final String value;
+
+  private final int maxDimension;
+
+  ImageSize(String value, int maxDimension) {
+    this.value = value;
+    this.maxDimension = maxDimension;
+  }
+
+  public static Optional<ImageSize> fromValue(String value) {
+    return Arrays.stream(values()).filter(size -> size.value.equalsIgnoreCase(value)).findFirst();
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Maximum width and height of the variant, 0 for the original.
+   */
+  public int getMaxDimension() {
+    return maxDimension;
+  }
+
+  public boolean isScaled() {
+    return this != ORIGINAL;
+  }
+
+  public String getKey(String filename) {
+    return isScaled() ? filename + "_" + value : filename;
+  }
+}
@@ -0,0 +1,11 @@
+package de.explore.grabby.booking.model.image;
+
+/**
+ * Processing state of the last image upload. While an upload is {@link #PROCESSING} or after it {@link #FAILED},
+ * the previous image (if any) is still served.
+ */
+public enum ImageStatus {
+  PROCESSING,
+  READY,
+  FAILED
+}
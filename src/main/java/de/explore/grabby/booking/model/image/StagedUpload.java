@@ -0,0 +1,11 @@
+package de.explore.grabby.booking.model.image;
+
+/**
+ * A streamed upload that was stored under a temporary key of the bucket and still has to be moved to the key given
+ * by its content hash.
+ *
+ * @param content the whole upload if it was small enough to keep it in memory for creating the scaled variants,
+ *                otherwise null
+ */
+public record StagedUpload(String bucket, String temporaryName, String fileName, byte[] content) {
+}
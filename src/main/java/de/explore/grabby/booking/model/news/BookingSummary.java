@@ -0,0 +1,97 @@
+package de.explore.grabby.booking.model.news;
+
+import de.explore.grabby.booking.model.Booking;
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import io.quarkus.hibernate.orm.panache.common.ProjectedFieldName;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only projection of a booking and its entity, used for news instead of the managed entities. It has the JSON
+ * properties of the booking, only the console type of the entity is left out.
+ */
+@RegisterForReflection
+public class BookingSummary {
+  private final long id;
+
+  private final String userId;
+
+  private final EntitySummary bookingEntity;
+
+  private final LocalDate startDate;
+
+  private final LocalDate endDate;
+
+  private final LocalDate bookingDate;
+
+  private final Boolean isCancelled;
+
+  private final Boolean isReturned;
+
+  public BookingSummary(Integer id, String userId, LocalDate startDate, LocalDate endDate, LocalDate bookingDate,
+                        Boolean isCancelled, Boolean isReturned,
+                        @ProjectedFieldName("bookingEntity.id") Integer entityId,
+                        @ProjectedFieldName("bookingEntity.name") String entityName,
+                        @ProjectedFieldName("bookingEntity.description") String entityDescription,
+                        @ProjectedFieldName("bookingEntity.type") String entityType,
+                        @ProjectedFieldName("bookingEntity.isArchived") Boolean entityIsArchived,
+                        @ProjectedFieldName("bookingEntity.addedOn") LocalDate entityAddedOn,
+                        @ProjectedFieldName("bookingEntity.image.filename") String imageFilename,
+                        @ProjectedFieldName("bookingEntity.image.bucket") String imageBucket,
+                        @ProjectedFieldName("bookingEntity.image.status") ImageStatus imageStatus) {
+    this.id = id;
+    this.userId = userId;
+    this.bookingEntity = new EntitySummary(entityId, entityName, entityDescription, entityType, entityIsArchived,
+            entityAddedOn, imageFilename, imageBucket, imageStatus);
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.bookingDate = bookingDate;
+    this.isCancelled = isCancelled;
+    this.isReturned = isReturned;
+  }
+
+  public static BookingSummary of(Booking booking) {
+    BookingEntity entity = booking.getBookingEntity();
+    Image image = entity.getImage();
+    return new BookingSummary(booking.getId(), booking.getUserId(), booking.getStartDate(), booking.getEndDate(),
+            booking.getBookingDate(), booking.getIsCancelled(), booking.getIsReturned(), (int) entity.getId(),
+            entity.getName(), entity.getDescription(), entity.getType(), entity.getIsArchived(), entity.getAddedOn(),
+            image != null ? image.getFilename() : null, image != null ? image.getBucket() : null,
+            image != null ? image.getStatus() : null);
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public EntitySummary getBookingEntity() {
+    return bookingEntity;
+  }
+
+  public LocalDate getStartDate() {
+    return startDate;
+  }
+
+  public LocalDate getEndDate() {
+    return endDate;
+  }
+
+  public LocalDate getBookingDate() {
+    return bookingDate;
+  }
+
+  public Boolean getIsCancelled() {
+    return isCancelled;
+  }
+
+  public Boolean getIsReturned() {
+    return isReturned;
+  }
+}
@@ -0,0 +1,80 @@
+package de.explore.grabby.booking.model.news;
+
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
+
+import java.time.LocalDate;
+
+/**
+ * The booked entity of a {@link BookingSummary}, with the JSON properties of the entity except its console type.
+ */
+public class EntitySummary {
+  private final long id;
+
+  private final String name;
+
+  private final String description;
+
+  private final String type;
+
+  private final Boolean isArchived;
+
+  private final LocalDate addedOn;
+
+  private final String imageFilename;
+
+  private final String imageBucket;
+
+  private final ImageStatus imageStatus;
+
+  public EntitySummary(long id, String name, String description, String type, Boolean isArchived, LocalDate addedOn,
+                       String imageFilename, String imageBucket, ImageStatus imageStatus) {
+    this.id = id;
+    this.name = name;
+    this.description = description;
+    this.type = type;
+    this.isArchived = isArchived;
+    this.addedOn = addedOn;
+    this.imageFilename = imageFilename;
+    this.imageBucket = imageBucket;
+    this.imageStatus = imageStatus;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public Boolean getIsArchived() {
+    return isArchived;
+  }
+
+  public LocalDate getAddedOn() {
+    return addedOn;
+  }
+
+  /**
+   * Returns a new copy of the image on every call, or null like the entity if it has none.
+   */
+  public Image getImage() {
+    if (imageFilename == null && imageBucket == null && imageStatus == null) {
+      return null;
+    }
+    Image image = new Image();
+    image.setFilename(imageFilename);
+    image.setBucket(imageBucket);
+    image.setStatus(imageStatus);
+    return image;
+  }
+}
@@ -0,0 +1,99 @@
+package de.explore.grabby.booking.model.news;
+
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.entity.ConsoleAccessory;
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of a newly added entity, with the same JSON properties as the entity. The new entities are cached
+ * and shared by all requests, so they must not be the entities themselves.
+ */
+public class NewEntity {
+  private final long id;
+
+  private final String name;
+
+  private final String description;
+
+  private final String type;
+
+  private final String consoleType;
+
+  private final Boolean isArchived;
+
+  private final LocalDate addedOn;
+
+  private final String imageFilename;
+
+  private final String imageBucket;
+
+  private final ImageStatus imageStatus;
+
+  private final boolean hasImage;
+
+  private NewEntity(BookingEntity entity) {
+    this.id = entity.getId();
+    this.name = entity.getName();
+    this.description = entity.getDescription();
+    this.type = entity.getType();
+    this.consoleType = entity instanceof Game game ? game.getConsoleType()
+            : entity instanceof ConsoleAccessory accessory ? accessory.getConsoleType() : null;
+    this.isArchived = entity.getIsArchived();
+    this.addedOn = entity.getAddedOn();
+    Image image = entity.getImage();
+    this.hasImage = image != null;
+    this.imageFilename = hasImage ? image.getFilename() : null;
+    this.imageBucket = hasImage ? image.getBucket() : null;
+    this.imageStatus = hasImage ? image.getStatus() : null;
+  }
+
+  public static NewEntity of(BookingEntity entity) {
+    return new NewEntity(entity);
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public String getConsoleType() {
+    return consoleType;
+  }
+
+  public Boolean getIsArchived() {
+    return isArchived;
+  }
+
+  public LocalDate getAddedOn() {
+    return addedOn;
+  }
+
+  /**
+   * Returns a new copy of the image on every call, so callers can not change the cached one.
+   */
+  public Image getImage() {
+    if (!hasImage) {
+      return null;
+    }
+    Image image = new Image();
+    image.setFilename(imageFilename);
+    image.setBucket(imageBucket);
+    image.setStatus(imageStatus);
+    return image;
+  }
+}
@@ -1,25 +1,22 @@
 package de.explore.grabby.booking.model.news;
 
-import de.explore.grabby.booking.model.Booking;
-import de.explore.grabby.booking.model.entity.BookingEntity;
-
 public class News {
   private NewsType type;
 
-  private BookingEntity entity;
+  private NewEntity entity;
 
-  private Booking booking;
+  private BookingSummary booking;
 
   public News(NewsType type) {
     this.type = type;
   }
 
-  public News(NewsType type, BookingEntity entity) {
+  public News(NewsType type, NewEntity entity) {
     this.type = type;
     this.entity = entity;
   }
 
-  public News(NewsType type, Booking booking) {
+  public News(NewsType type, BookingSummary booking) {
     this.type = type;
     this.booking = booking;
   }
@@ -32,19 +29,19 @@ public class News {
     this.type = type;
   }
 
-  public BookingEntity getEntity() {
+  public NewEntity getEntity() {
     return entity;
   }
 
-  public void setEntity(BookingEntity entity) {
+  public void setEntity(NewEntity entity) {
     this.entity = entity;
   }
 
-  public Booking getBooking() {
+  public BookingSummary getBooking() {
     return booking;
   }
 
-  public void setBooking(Booking booking) {
+  public void setBooking(BookingSummary booking) {
     this.booking = booking;
   }
 }
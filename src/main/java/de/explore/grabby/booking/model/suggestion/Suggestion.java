@@ -0,0 +1,33 @@
+package de.explore.grabby.booking.model.suggestion;
+
+/**
+ * A completion for the search box: the name of a booking entity or shop, or a console type of the games.
+ */
+public class Suggestion {
+  private final SuggestionType type;
+
+  private final Long id;
+
+  private final String label;
+
+  /**
+   * @param id id of the entity or shop, null for console types
+   */
+  public Suggestion(SuggestionType type, Long id, String label) {
+    this.type = type;
+    this.id = id;
+    this.label = label;
+  }
+
+  public SuggestionType getType() {
+    return type;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+}
@@ -0,0 +1,7 @@
+package de.explore.grabby.booking.model.suggestion;
+
+public enum SuggestionType {
+  ENTITY,
+  CONSOLE,
+  SHOP
+}
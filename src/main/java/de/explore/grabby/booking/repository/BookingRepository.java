@@ -2,13 +2,19 @@ package de.explore.grabby.booking.repository;
 
 import de.explore.grabby.booking.model.Booking;
 import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.event.BookingChangeType;
+import de.explore.grabby.booking.model.event.BookingChangedEvent;
+import de.explore.grabby.booking.model.news.BookingSummary;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @ApplicationScoped
@@ -16,12 +22,20 @@ public class BookingRepository implements PanacheRepository<Booking> {
 
   private static final Logger LOG = LoggerFactory.getLogger(BookingRepository.class);
 
+  @Inject
+  Event<BookingChangedEvent> bookingChanged;
+
   @Transactional
   public void create(List<Booking> bookings, String userId) {
     for (Booking booking : bookings) {
       booking.setUserId(userId);
+      // the entity of the request body only carries the id, the event needs the stored name and type
+      booking.setBookingEntity(getEntityManager().getReference(BookingEntity.class, booking.getBookingEntity().getId()));
       persist(booking);
+      bookingChanged.fire(new BookingChangedEvent(BookingChangeType.CREATED, booking));
     }
+    // overlapping bookings are rejected by the exclusion constraint on flush, before the events are delivered
+    flush();
     LOG.info("User {} successfully created {} bookings", userId, bookings.size());
   }
 
@@ -30,6 +44,7 @@ public class BookingRepository implements PanacheRepository<Booking> {
     Booking bookingToCancel = findById(id);
     bookingToCancel.setIsCancelled(true);
     persist(bookingToCancel);
+    bookingChanged.fire(new BookingChangedEvent(BookingChangeType.CANCELLED, bookingToCancel));
     LOG.info("Booking with id {} was cancelled successfully", id);
   }
 
@@ -38,6 +53,7 @@ public class BookingRepository implements PanacheRepository<Booking> {
     Booking bookingToReturn = findById(id);
     bookingToReturn.setIsReturned(true);
     persist(bookingToReturn);
+    bookingChanged.fire(new BookingChangedEvent(BookingChangeType.RETURNED, bookingToReturn));
     LOG.info("Booking with id {} was returned successfully", id);
   }
 
@@ -46,14 +62,29 @@ public class BookingRepository implements PanacheRepository<Booking> {
     Booking requestedBooking = findById(id);
     requestedBooking.setEndDate(requestedDate);
     persist(requestedBooking);
+    flush();
+    bookingChanged.fire(new BookingChangedEvent(BookingChangeType.EXTENDED, requestedBooking));
     LOG.info("Booking with id {} was extended successfully", id);
   }
 
   public List<Booking> findAllBookingsByEntityAndByStartDateAfterRequestedDate(long id, BookingEntity entity, LocalDate requestedDate, LocalDate endDate) {
-    return find("id != ?1 and bookingEntity = ?2 and startDate <= ?3 and endDate >= ?4", id, entity, requestedDate, endDate)
+    return find("id != ?1 and bookingEntity = ?2 and startDate <= ?3 and endDate >= ?4 and isReturned = False and isCancelled = False",
+            id, entity, requestedDate, endDate)
             .list();
   }
 
+  public List<Booking> listAllActiveBookings() {
+    return find("isReturned = False and isCancelled = False").list();
+  }
+
+  public List<Booking> listAllActiveBookingsByEntity(long entityId) {
+    return find("bookingEntity.id = ?1 and isReturned = False and isCancelled = False", entityId).list();
+  }
+
+  public List<Booking> listAllActiveBookingsByEntities(Collection<Long> entityIds) {
+    return find("bookingEntity.id in ?1 and isReturned = False and isCancelled = False", entityIds).list();
+  }
+
   public List<Booking> listAllOverdueBookings(String userId) {
     return find("isReturned = False and endDate <= ?1 and userId = ?2", LocalDate.now(), userId).stream().toList();
   }
@@ -66,15 +97,31 @@ public class BookingRepository implements PanacheRepository<Booking> {
     return find("userId = ?1", userId).stream().toList();
   }
 
-  public List<Booking> aBookingForUserStartsToday(String identifier) {
-      return find("startDate = ?1 and userId = ?2", LocalDate.now(), identifier).list();
+  /**
+   * Finds all bookings of the user that start today, are soon overdue or are overdue with a single query.
+   */
+  public List<BookingSummary> findAllNewsworthyBookingsOfUser(String identifier, LocalDate today, LocalDate soonOverdueDate) {
+    return find("userId = ?1 and (startDate = ?2 or (isReturned = False and endDate <= ?3))", identifier, today, soonOverdueDate)
+            .project(BookingSummary.class)
+            .list();
+  }
+
+  public List<BookingSummary> findAllNewsworthyBookingsOfUsers(Collection<String> identifiers, LocalDate today, LocalDate soonOverdueDate) {
+    return find("userId in ?1 and (startDate = ?2 or (isReturned = False and endDate <= ?3))", identifiers, today, soonOverdueDate)
+            .project(BookingSummary.class)
+            .list();
   }
 
-  public List<Booking> findSoonOverdueBookingsOfUser(String identifier) {
-    return find("isReturned = False and endDate >= ?1 and endDate <= ?2 and userId = ?3", LocalDate.now(), LocalDate.now().plusDays(2), identifier).stream().toList();
+  /**
+   * Finds the bookings of all users whose news change on the given day: they start, become soon overdue or overdue.
+   */
+  public List<BookingSummary> findAllBookingsWithNewsChangingOn(LocalDate day, LocalDate soonOverdueDate) {
+    return find("startDate = ?1 or (isReturned = False and (endDate = ?1 or endDate = ?2))", day, soonOverdueDate)
+            .project(BookingSummary.class)
+            .list();
   }
 
-  public long listByUser(String subject) {
-    return find("userId = ?1 and isReturned = False and isCancelled = False", subject).stream().count();
+  public long countActiveBookingsByUser(String subject) {
+    return count("userId = ?1 and isReturned = False and isCancelled = False", subject);
   }
 }
\ No newline at end of file
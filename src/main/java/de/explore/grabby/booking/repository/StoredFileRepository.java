@@ -0,0 +1,78 @@
+package de.explore.grabby.booking.repository;
+
+import de.explore.grabby.booking.model.StoredFile;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+
+@ApplicationScoped
+public class StoredFileRepository implements PanacheRepositoryBase<StoredFile, StoredFile.Key> {
+
+  public boolean exists(String bucket, String filename) {
+    return count("bucket = ?1 and filename = ?2", bucket, filename) > 0;
+  }
+
+  /**
+   * Whether the scaled variants of the file were stored. Unknown files have no variants.
+   */
+  public boolean hasVariants(String bucket, String filename) {
+    return count("bucket = ?1 and filename = ?2 and hasVariants = true", bucket, filename) > 0;
+  }
+
+  /**
+   * Registers a new reference to the file. The row is created with the first reference, a file keeps its variants
+   * once they were stored.
+   */
+  @Transactional
+  public void addReference(String bucket, String filename, boolean hasVariants) {
+    getEntityManager().createNativeQuery("""
+                    insert into StoredFile (bucket, filename, reference_count, has_variants)
+                    values (:bucket, :filename, 1, :hasVariants)
+                    on conflict (bucket, filename) do update set reference_count = StoredFile.reference_count + 1,
+                    has_variants = StoredFile.has_variants or excluded.has_variants""")
+            .setParameter("bucket", bucket)
+            .setParameter("filename", filename)
+            .setParameter("hasVariants", hasVariants)
+            .executeUpdate();
+  }
+
+  /**
+   * Records that the scaled variants of the file were stored.
+   */
+  @Transactional
+  public void markVariants(String bucket, String filename) {
+    update("hasVariants = true where bucket = ?1 and filename = ?2", bucket, filename);
+  }
+
+  /**
+   * Removes a reference to the file. Files that were uploaded before content addressing have no row and are ignored.
+   */
+  @Transactional
+  public void removeReference(String bucket, String filename) {
+    update("referenceCount = referenceCount - 1 where bucket = ?1 and filename = ?2 and referenceCount > 0", bucket, filename);
+  }
+
+  public List<StoredFile> listOrphans(String bucket) {
+    return list("bucket = ?1 and referenceCount = 0", bucket);
+  }
+
+  /**
+   * Removes the objects of the file with the given action and deletes its row, if the file still has no references.
+   * The row stays locked meanwhile, so {@link #addReference(String, String, boolean)} waits until the objects are gone.
+   *
+   * @return whether the file was deleted
+   */
+  @Transactional
+  public boolean deleteOrphan(String bucket, String filename, Runnable deleteObjects) {
+    StoredFile file = findById(new StoredFile.Key(bucket, filename), LockModeType.PESSIMISTIC_WRITE);
+    if (file == null || file.getReferenceCount() > 0) {
+      return false;
+    }
+    deleteObjects.run();
+    delete(file);
+    return true;
+  }
+}
@@ -1,14 +1,26 @@
 package de.explore.grabby.booking.repository.entity;
 
 import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.model.image.EntityImage;
+import de.explore.grabby.booking.model.image.ImageStatus;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 
 @ApplicationScoped
@@ -16,11 +28,67 @@ public class BookingEntityRepository implements PanacheRepository<BookingEntity>
 
   private static final Logger LOG = LoggerFactory.getLogger(BookingEntityRepository.class);
 
+  @Inject
+  Event<BookingEntityChangedEvent> entityChanged;
+
+  @Transactional
+  public void persistEntity(BookingEntity entity) {
+    persist(entity);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.ADDED, entity));
+    LOG.info("New entity with id {} was persisted", entity.getId());
+  }
+
+  /**
+   * Marks the image of the entity as {@link ImageStatus#PROCESSING} and returns the id of the new upload. The image
+   * itself is kept until the upload is finished.
+   */
+  @Transactional
+  public String startImageUpload(long id) {
+    BookingEntity entity = findByIdOptional(id).orElseThrow(NotFoundException::new);
+    Image image = entity.getImage() != null ? entity.getImage() : new Image();
+    image.setStatus(ImageStatus.PROCESSING);
+    image.setUpload(UUID.randomUUID().toString());
+    entity.setImage(image);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, entity));
+    return image.getUpload();
+  }
+
+  /**
+   * Replaces the image of the entity if the upload is still the latest one, and returns the image that is no longer
+   * used: the previous one, or the given one if a later upload superseded it.
+   */
+  @Transactional
+  public Image finishImageUpload(long id, String upload, Image image) {
+    BookingEntity entity = findById(id, LockModeType.PESSIMISTIC_WRITE);
+    // the entity may have been deleted meanwhile
+    Image previousImage = entity != null ? entity.getImage() : null;
+    if (previousImage == null || !upload.equals(previousImage.getUpload())) {
+      return image;
+    }
+    entity.setImage(image);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, entity));
+    return previousImage;
+  }
+
+  /**
+   * Marks the image of the entity as {@link ImageStatus#FAILED}, unless a later upload superseded the failed one.
+   */
+  @Transactional
+  public void failImageUpload(long id, String upload) {
+    BookingEntity entity = findById(id, LockModeType.PESSIMISTIC_WRITE);
+    Image image = entity != null ? entity.getImage() : null;
+    if (image != null && upload.equals(image.getUpload())) {
+      image.setStatus(ImageStatus.FAILED);
+      entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, entity));
+    }
+  }
+
   @Transactional
   public void archiveEntityById(long id) {
     BookingEntity entityToArchive = findById(id);
     entityToArchive.setIsArchived(true);
     persist(entityToArchive);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.ARCHIVED, entityToArchive));
     LOG.info("Entity with id {} was archived", id);
   }
 
@@ -29,6 +97,7 @@ public class BookingEntityRepository implements PanacheRepository<BookingEntity>
     BookingEntity entityToUnarchive = findById(id);
     entityToUnarchive.setIsArchived(false);
     persist(entityToUnarchive);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UNARCHIVED, entityToUnarchive));
     LOG.info("Entity with id {} was unarchived", id);
   }
 
@@ -40,7 +109,70 @@ public class BookingEntityRepository implements PanacheRepository<BookingEntity>
     return find("isArchived is false").list();
   }
 
+  /**
+   * Returns the images of all existing entities with the given ids in one query, together with whether their variants
+   * were stored. Ids of missing entities are skipped.
+   */
+  public List<EntityImage> findImagesByIds(Collection<Long> ids) {
+    return getEntityManager().createQuery("""
+                    select new de.explore.grabby.booking.model.image.EntityImage(
+                      e.id, e.image.filename, e.image.bucket, e.image.status, f.hasVariants)
+                    from BookingEntity e
+                    left join StoredFile f on f.bucket = e.image.bucket and f.filename = e.image.filename
+                    where e.id in :ids""", EntityImage.class)
+            .setParameter("ids", ids.stream().map(Long::intValue).toList())
+            .getResultList();
+  }
+
+  /**
+   * Returns a page of entities ordered by the day they were added, see {@link EntityListQuery}.
+   *
+   * @param archived only returns archived or not archived entities, all entities if null
+   */
+  public EntityPage findPage(Boolean archived, EntityListQuery query) {
+    String filter = archived == null ? null : "e.isArchived is " + archived;
+    return EntityListing.find(getEntityManager(), BookingEntity.class, filter, EntityListing.FIELDS, query);
+  }
+
+  /**
+   * Finds the entities matching the search, best matches first. Matches in the name rank higher than matches in the
+   * description. The search uses the GIN index on the generated {@code search_vector} column.
+   */
+  @SuppressWarnings("unchecked")
+  public List<BookingEntity> search(EntitySearchQuery search) {
+    if (search.isEmpty()) {
+      return List.of();
+    }
+    StringBuilder sql = new StringBuilder("select e.* from BookingEntity e, to_tsquery('simple', :query) query")
+            .append(" where e.search_vector @@ query");
+    if (search.type() != null) {
+      sql.append(" and e.type = :type");
+    }
+    if (search.consoleType() != null) {
+      sql.append(" and e.consoleType = :consoleType");
+    }
+    if (search.archived() != null) {
+      sql.append(" and e.isArchived = :archived");
+    }
+    sql.append(" order by ts_rank(e.search_vector, query) desc, e.id limit :limit offset :offset");
+
+    Query query = getEntityManager().createNativeQuery(sql.toString(), BookingEntity.class)
+            .setParameter("query", search.tsQuery())
+            .setParameter("limit", search.limit())
+            .setParameter("offset", search.offset());
+    if (search.type() != null) {
+      query.setParameter("type", search.type());
+    }
+    if (search.consoleType() != null) {
+      query.setParameter("consoleType", search.consoleType());
+    }
+    if (search.archived() != null) {
+      query.setParameter("archived", search.archived());
+    }
+    return query.getResultList();
+  }
+
   public List<BookingEntity> newEntityWasAdded() {
     return find("addedOn >= ?1", LocalDate.now().minusDays(7)).stream().toList();
   }
-}
\ No newline at end of file
+}
@@ -1,8 +1,12 @@
 package de.explore.grabby.booking.repository.entity;
 
 import de.explore.grabby.booking.model.entity.ConsoleAccessory;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,8 +16,12 @@ import java.util.List;
 public class ConsoleAccessoryRepository implements PanacheRepository<ConsoleAccessory> {
   private static final Logger LOG = LoggerFactory.getLogger(ConsoleAccessoryRepository.class);
 
+  @Inject
+  Event<BookingEntityChangedEvent> entityChanged;
+
   public long persistConsoleAccessory(ConsoleAccessory consoleAccessory) {
     persist(consoleAccessory);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.ADDED, consoleAccessory));
     LOG.info("New entity with id {} was persisted", consoleAccessory.getId());
     return consoleAccessory.getId();
   }
@@ -22,11 +30,19 @@ public class ConsoleAccessoryRepository implements PanacheRepository<ConsoleAcce
     return listAll();
   }
 
+  /**
+   * Returns a page of console accessories ordered by the day they were added, see {@link EntityListQuery}.
+   */
+  public EntityPage findPage(EntityListQuery query) {
+    return EntityListing.find(getEntityManager(), ConsoleAccessory.class, null, EntityListing.FIELDS_WITH_CONSOLE_TYPE, query);
+  }
+
   public void updateConsoleAccessory(long id, ConsoleAccessory consoleAccessory) {
     ConsoleAccessory consoleAccessoryToUpdate = findById(id);
     consoleAccessoryToUpdate.setName(consoleAccessory.getName());
     consoleAccessoryToUpdate.setDescription(consoleAccessory.getDescription());
     persist(consoleAccessoryToUpdate);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, consoleAccessoryToUpdate));
     LOG.info("Entity with id {} was updated", id);
   }
 }
@@ -1,8 +1,12 @@
 package de.explore.grabby.booking.repository.entity;
 
 import de.explore.grabby.booking.model.entity.Console;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,8 +16,12 @@ import java.util.List;
 public class ConsoleRepository implements PanacheRepository<Console> {
   private static final Logger LOG = LoggerFactory.getLogger(ConsoleRepository.class);
 
+  @Inject
+  Event<BookingEntityChangedEvent> entityChanged;
+
   public long persistConsole(Console console) {
     persist(console);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.ADDED, console));
     LOG.info("New entity with id {} was persisted", console.getId());
     return console.getId();
   }
@@ -22,11 +30,19 @@ public class ConsoleRepository implements PanacheRepository<Console> {
     return listAll();
   }
 
+  /**
+   * Returns a page of consoles ordered by the day they were added, see {@link EntityListQuery}.
+   */
+  public EntityPage findPage(EntityListQuery query) {
+    return EntityListing.find(getEntityManager(), Console.class, null, EntityListing.FIELDS, query);
+  }
+
   public void updateConsole(long id, Console console) {
     Console consoleToUpdate = findById(id);
     consoleToUpdate.setName(console.getName());
     consoleToUpdate.setDescription(console.getDescription());
     persist(consoleToUpdate);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, consoleToUpdate));
     LOG.info("Entity with id {} was updated", console.getId());
 
   }
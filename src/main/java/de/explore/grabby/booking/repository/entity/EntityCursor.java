@@ -0,0 +1,35 @@
+package de.explore.grabby.booking.repository.entity;
+
+import jakarta.ws.rs.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position after the last entity of a page. Entities are ordered by {@code (addedOn, id)}, so the next page starts
+ * right after this key and stays stable while entities are added.
+ */
+public record EntityCursor(LocalDate addedOn, long id) {
+
+  private static final String SEPARATOR = "_";
+
+  /**
+   * Returns the opaque string representation that clients send back as {@code cursor} parameter.
+   */
+  public String encode() {
+    String key = addedOn + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static EntityCursor decode(String cursor) {
+    try {
+      String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = key.indexOf(SEPARATOR);
+      return new EntityCursor(LocalDate.parse(key.substring(0, separator)), Long.parseLong(key.substring(separator + 1)));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package de.explore.grabby.booking.repository.entity;
+
+import jakarta.ws.rs.BadRequestException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Requested page and fields of an entity list. Lists are only paged if a cursor or limit is given, and only
+ * projected if fields are given, otherwise all entities are returned completely.
+ *
+ * @param after  cursor of the last entity of the previous page, null for the first page
+ * @param limit  maximum number of entities of the page, null for all entities
+ * @param fields fields to return besides the id, null for whole entities
+ */
+public record EntityListQuery(EntityCursor after, Integer limit, Set<String> fields) {
+
+  public static final int DEFAULT_LIMIT = 50;
+
+  public static final int MAX_LIMIT = 200;
+
+  public static EntityListQuery of(String cursor, Integer limit, String fields) {
+    if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+      throw new BadRequestException("Limit has to be between 1 and " + MAX_LIMIT);
+    }
+    EntityCursor after = cursor == null || cursor.isBlank() ? null : EntityCursor.decode(cursor);
+    Integer pageSize = limit == null && after != null ? Integer.valueOf(DEFAULT_LIMIT) : limit;
+    Set<String> requestedFields = fields == null || fields.isBlank() ? null : Arrays.stream(fields.split(","))
+            .map(String::trim)
+            .filter(field -> !field.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    return new EntityListQuery(after, pageSize, requestedFields);
+  }
+
+  public boolean isPaged() {
+    return limit != null;
+  }
+
+  public boolean isProjected() {
+    return fields != null;
+  }
+}
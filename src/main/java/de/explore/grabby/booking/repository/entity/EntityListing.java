@@ -0,0 +1,130 @@
+package de.explore.grabby.booking.repository.entity;
+
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.BadRequestException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Lists entities with keyset pagination on {@code (addedOn, id)} and optionally selects only the requested columns,
+ * so that neither the description nor the image columns have to be read and hydrated if they are not shown.
+ */
+final class EntityListing {
+
+  static final Set<String> FIELDS = Set.of("name", "description", "type", "isArchived", "addedOn", "image");
+
+  static final Set<String> FIELDS_WITH_CONSOLE_TYPE =
+          Set.of("name", "description", "type", "isArchived", "addedOn", "image", "consoleType");
+
+  private EntityListing() {
+  }
+
+  /**
+   * @param filter additional HQL condition on the entity alias {@code e}, or null
+   */
+  static EntityPage find(EntityManager entityManager, Class<? extends BookingEntity> type, String filter,
+                         Set<String> allowedFields, EntityListQuery query) {
+    String where = createWhere(filter, query.after());
+    String from = " from " + type.getSimpleName() + " e" + where + " order by e.addedOn, e.id";
+    if (!query.isProjected()) {
+      TypedQuery<? extends BookingEntity> entities = entityManager.createQuery("select e" + from, type);
+      List<? extends BookingEntity> page = fetch(entities, query);
+      return toPage(page, query, entity -> new EntityCursor(entity.getAddedOn(), entity.getId()));
+    }
+    for (String field : query.fields()) {
+      if (!field.equals("id") && !allowedFields.contains(field)) {
+        throw new BadRequestException("Unknown field " + field);
+      }
+    }
+    TypedQuery<Tuple> tuples = entityManager.createQuery(createSelect(query.fields()) + from, Tuple.class);
+    List<Tuple> page = fetch(tuples, query);
+    EntityPage tuplePage = toPage(page, query, tuple ->
+            new EntityCursor(tuple.get("addedOn", LocalDate.class), tuple.get("id", Integer.class)));
+    List<Map<String, Object>> items = new ArrayList<>(tuplePage.items().size());
+    for (Object tuple : tuplePage.items()) {
+      items.add(toMap((Tuple) tuple, query.fields()));
+    }
+    return new EntityPage(items, tuplePage.next());
+  }
+
+  private static String createWhere(String filter, EntityCursor after) {
+    List<String> conditions = new ArrayList<>();
+    if (filter != null) {
+      conditions.add(filter);
+    }
+    if (after != null) {
+      conditions.add("(e.addedOn > :afterAddedOn or (e.addedOn = :afterAddedOn and e.id > :afterId))");
+    }
+    return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+  }
+
+  /**
+   * Always selects id and addedOn, because they form the cursor of the next page.
+   */
+  private static String createSelect(Set<String> fields) {
+    StringBuilder select = new StringBuilder("select e.id as id, e.addedOn as addedOn");
+    for (String field : fields) {
+      switch (field) {
+        case "id", "addedOn" -> {
+        }
+        case "image" -> select.append(", e.image.filename as imageFilename, e.image.bucket as imageBucket")
+                .append(", e.image.status as imageStatus");
+        default -> select.append(", e.").append(field).append(" as ").append(field);
+      }
+    }
+    return select.toString();
+  }
+
+  private static <T> List<T> fetch(TypedQuery<T> typedQuery, EntityListQuery query) {
+    if (query.after() != null) {
+      typedQuery.setParameter("afterAddedOn", query.after().addedOn());
+      typedQuery.setParameter("afterId", (int) query.after().id());
+    }
+    if (query.isPaged()) {
+      // one more row tells whether there is a next page
+      typedQuery.setMaxResults(query.limit() + 1);
+    }
+    return typedQuery.getResultList();
+  }
+
+  private static <T> EntityPage toPage(List<T> rows, EntityListQuery query, Function<T, EntityCursor> cursor) {
+    if (!query.isPaged() || rows.size() <= query.limit()) {
+      return new EntityPage(rows, null);
+    }
+    List<T> page = rows.subList(0, query.limit());
+    return new EntityPage(page, cursor.apply(page.get(page.size() - 1)));
+  }
+
+  private static Map<String, Object> toMap(Tuple tuple, Set<String> fields) {
+    Map<String, Object> item = new LinkedHashMap<>();
+    item.put("id", tuple.get("id"));
+    for (String field : fields) {
+      switch (field) {
+        case "id" -> {
+        }
+        case "image" -> {
+          if (tuple.get("imageFilename") == null && tuple.get("imageStatus") == null) {
+            item.put("image", null);
+          } else {
+            Map<String, Object> image = new LinkedHashMap<>();
+            image.put("filename", tuple.get("imageFilename"));
+            image.put("bucket", tuple.get("imageBucket"));
+            image.put("status", tuple.get("imageStatus"));
+            item.put("image", image);
+          }
+        }
+        default -> item.put(field, tuple.get(field));
+      }
+    }
+    return item;
+  }
+}
@@ -0,0 +1,11 @@
+package de.explore.grabby.booking.repository.entity;
+
+import java.util.List;
+
+/**
+ * One page of an entity list. The items are entities, or maps of the requested fields for projected lists.
+ *
+ * @param next cursor of the following page, null if this is the last page
+ */
+public record EntityPage(List<?> items, EntityCursor next) {
+}
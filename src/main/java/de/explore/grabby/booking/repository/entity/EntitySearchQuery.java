@@ -0,0 +1,58 @@
+package de.explore.grabby.booking.repository.entity;
+
+import jakarta.ws.rs.BadRequestException;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over name and description of the entities. Every word of the text has to match the beginning of a
+ * word of the entity, so incomplete input of a typeahead already finds results.
+ *
+ * @param tsQuery     the text as Postgres tsquery, for example {@code mario:* & kart:*}
+ * @param type        only finds entities of this type, all types if null
+ * @param consoleType only finds entities for this console, all consoles if null
+ * @param archived    only finds archived or not archived entities, all entities if null
+ */
+public record EntitySearchQuery(String tsQuery, String type, String consoleType, Boolean archived, int limit, int offset) {
+
+  public static final int DEFAULT_LIMIT = 20;
+
+  public static final int MAX_LIMIT = 100;
+
+  private static final Set<String> TYPES = Set.of("game", "console", "accessory");
+
+  public static EntitySearchQuery of(String text, String type, String consoleType, Boolean archived, Integer limit,
+                                     Integer offset) {
+    if (text == null || text.isBlank()) {
+      throw new BadRequestException("Search text must not be empty");
+    }
+    if (type != null && !TYPES.contains(type)) {
+      throw new BadRequestException("Unknown entity type");
+    }
+    if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+      throw new BadRequestException("Limit has to be between 1 and " + MAX_LIMIT);
+    }
+    if (offset != null && offset < 0) {
+      throw new BadRequestException("Offset must not be negative");
+    }
+    return new EntitySearchQuery(toTsQuery(text), type, consoleType, archived,
+            limit != null ? limit : DEFAULT_LIMIT, offset != null ? offset : 0);
+  }
+
+  /**
+   * Keeps only letters and digits of the text, so that it cannot contain tsquery operators.
+   */
+  private static String toTsQuery(String text) {
+    return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+            .filter(word -> !word.isEmpty())
+            .map(word -> word + ":*")
+            .collect(Collectors.joining(" & "));
+  }
+
+  public boolean isEmpty() {
+    return tsQuery.isEmpty();
+  }
+}
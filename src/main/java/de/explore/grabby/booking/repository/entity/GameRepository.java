@@ -1,8 +1,12 @@
 package de.explore.grabby.booking.repository.entity;
 
 import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,8 +17,12 @@ public class GameRepository implements PanacheRepository<Game> {
 
   private static final Logger LOG = LoggerFactory.getLogger(GameRepository.class);
 
+  @Inject
+  Event<BookingEntityChangedEvent> entityChanged;
+
   public long persistGame(Game game) {
     persist(game);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.ADDED, game));
     LOG.info("New entity with id {} was persisted", game.getId());
     return game.getId();
   }
@@ -23,12 +31,20 @@ public class GameRepository implements PanacheRepository<Game> {
     return listAll();
   }
 
+  /**
+   * Returns a page of games ordered by the day they were added, see {@link EntityListQuery}.
+   */
+  public EntityPage findPage(EntityListQuery query) {
+    return EntityListing.find(getEntityManager(), Game.class, null, EntityListing.FIELDS_WITH_CONSOLE_TYPE, query);
+  }
+
   public void updateGame(long id, Game game) {
     Game gameToUpdate = findById(id);
     gameToUpdate.setName(game.getName());
     gameToUpdate.setDescription(game.getDescription());
     gameToUpdate.setConsoleType(game.getConsoleType());
     persist(gameToUpdate);
+    entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, gameToUpdate));
     LOG.info("Entity with id {} was updated", id);
   }
 }
@@ -84,11 +84,12 @@ public class BookingResource {
   @Operation(summary = "Create bookings", description = "Creates one or more new bookings for the user.")
   @APIResponses({
           @APIResponse(responseCode = "201", description = "Bookings created successfully"),
-          @APIResponse(responseCode = "400", description = "Invalid input or booking limit reached")
+          @APIResponse(responseCode = "400", description = "Invalid input or booking limit reached"),
+          @APIResponse(responseCode = "409", description = "Entity is already booked in the requested period")
   })
   public Response createBookings(@NotNull @Valid List<Booking> newBookings) {
     verifyUserDoesNotHaveMoreThanFiveBookings(newBookings.size());
-    bookingRepository.create(newBookings, jwt.getSubject());
+    service.create(newBookings, jwt.getSubject());
     return Response.status(CREATED).build();
   }
 
@@ -126,7 +127,8 @@ public class BookingResource {
   @APIResponses({
           @APIResponse(responseCode = "204", description = "Booking extended successfully"),
           @APIResponse(responseCode = "400", description = "Invalid extension or booking already booked"),
-          @APIResponse(responseCode = "404", description = "Booking not found")
+          @APIResponse(responseCode = "404", description = "Booking not found"),
+          @APIResponse(responseCode = "409", description = "Entity was booked concurrently in the requested period")
   })
   public Response extendBookingById(@PathParam("id") long id, int requestedDays) {
     ensureBookingExists(id);
@@ -168,7 +170,7 @@ public class BookingResource {
   }
 
   private void verifyUserDoesNotHaveMoreThanFiveBookings(int newBookingsSize) {
-    long currentBookingsSize = bookingRepository.listByUser(jwt.getSubject());
+    long currentBookingsSize = service.countActiveBookingsOfUser(jwt.getSubject());
     if (currentBookingsSize > 5) {
       throw new BadRequestException("Booking limit has been reached");
     }
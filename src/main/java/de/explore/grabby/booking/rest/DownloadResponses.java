@@ -0,0 +1,137 @@
+package de.explore.grabby.booking.rest;
+
+import de.explore.grabby.booking.service.storage.StoredObject;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds cacheable download responses for stored files. Uploaded files are stored under the hash of their
+ * content, so the key is a strong validator of the file behind a download URL.
+ */
+public final class DownloadResponses {
+
+  private static final int ONE_YEAR_IN_SECONDS = 31536000;
+
+  private static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("bytes=(\\d{0,18})-(\\d{0,18})");
+
+  private DownloadResponses() {
+  }
+
+  /**
+   * Answers with 304 if the client already has the file, without fetching it, and with 206 if the client requests a
+   * single byte range of it. Immutable files may be cached forever, all others have to be revalidated because the
+   * file behind their URL can be replaced. Answers with 404 if there is no file, that is if the key is null.
+   *
+   * @param body        loads the whole file as response entity, for example a {@link StreamingOutput}
+   * @param rangeLoader loads the given byte range (for example {@code bytes=0-1023}) of the file
+   */
+  public static Response create(Request request, HttpHeaders headers, String key, boolean immutable,
+                                Supplier<?> body,
+                                Function<String, StoredObject> rangeLoader) {
+    EntityTag entityTag = createEntityTag(key);
+    CacheControl cacheControl = createCacheControl(immutable);
+
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      return notModified.cacheControl(cacheControl).build();
+    }
+    Optional<String> range = getRequestedRange(headers, entityTag);
+    if (range.isPresent()) {
+      StoredObject part = rangeLoader.apply(range.get());
+      return Response.status(Response.Status.PARTIAL_CONTENT)
+              .entity(part.toResponseEntity())
+              .type(MediaType.APPLICATION_OCTET_STREAM)
+              .header("Content-Range", part.contentRange())
+              .header(HttpHeaders.CONTENT_LENGTH, part.contentLength())
+              .header("Accept-Ranges", "bytes")
+              .tag(entityTag)
+              .cacheControl(cacheControl)
+              .build();
+    }
+    return Response.ok(body.get(), MediaType.APPLICATION_OCTET_STREAM)
+            .header("Accept-Ranges", "bytes")
+            .tag(entityTag)
+            .cacheControl(cacheControl)
+            .build();
+  }
+
+  /**
+   * Answers with 304 if the client already has the file, and otherwise redirects it to the given location, for
+   * example a presigned S3 URL. The redirect may be reused until {@code validUntil}.
+   */
+  public static Response redirect(Request request, String key, URI location, Instant validUntil) {
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(createEntityTag(key));
+    if (notModified != null) {
+      return notModified.cacheControl(createCacheControl(false)).build();
+    }
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setPrivate(true);
+    cacheControl.setNoTransform(false);
+    cacheControl.setMaxAge((int) Math.max(0, Duration.between(Instant.now(), validUntil).toSeconds()));
+    return Response.status(Response.Status.FOUND)
+            .location(location)
+            .cacheControl(cacheControl)
+            .build();
+  }
+
+  private static EntityTag createEntityTag(String key) {
+    if (key == null) {
+      throw new NotFoundException("No file was uploaded");
+    }
+    return new EntityTag(key);
+  }
+
+  /**
+   * Returns the requested byte range if it should be served. Ranges are ignored and the whole file is sent if the
+   * If-Range validator does not match, or if the header asks for several ranges or cannot be parsed.
+   */
+  private static Optional<String> getRequestedRange(HttpHeaders headers, EntityTag entityTag) {
+    String range = headers.getHeaderString("Range");
+    if (range == null) {
+      return Optional.empty();
+    }
+    // only the strong entity tag is accepted as validator, an If-Range date always yields the whole file
+    String ifRange = headers.getHeaderString("If-Range");
+    if (ifRange != null && !ifRange.equals(entityTag.toString())) {
+      return Optional.empty();
+    }
+    Matcher matcher = SINGLE_BYTE_RANGE.matcher(range.trim());
+    if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+      return Optional.empty();
+    }
+    if (!matcher.group(1).isEmpty() && !matcher.group(2).isEmpty()
+            && Long.parseLong(matcher.group(1)) > Long.parseLong(matcher.group(2))) {
+      return Optional.empty();
+    }
+    return Optional.of(range.trim());
+  }
+
+  private static CacheControl createCacheControl(boolean immutable) {
+    CacheControl cacheControl = new CacheControl();
+    // all endpoints require authentication, so shared caches must not store the files
+    cacheControl.setPrivate(true);
+    cacheControl.setNoTransform(false);
+    if (immutable) {
+      cacheControl.setMaxAge(ONE_YEAR_IN_SECONDS);
+      cacheControl.getCacheExtension().put("immutable", null);
+    } else {
+      cacheControl.setNoCache(true);
+    }
+    return cacheControl;
+  }
+}
@@ -0,0 +1,62 @@
+package de.explore.grabby.booking.rest;
+
+import de.explore.grabby.booking.service.EncodedJson;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.util.Locale;
+
+/**
+ * Builds responses from pre-serialized JSON. The hash of the JSON is sent as entity tag, so clients can revalidate
+ * their copy, and the gzip variant is sent to clients that accept it.
+ */
+public final class JsonResponses {
+
+  private static final String GZIP = "gzip";
+
+  private static final MediaType JSON_UTF_8 = MediaType.APPLICATION_JSON_TYPE.withCharset("UTF-8");
+
+  private JsonResponses() {
+  }
+
+  public static Response create(Request request, HttpHeaders headers, EncodedJson body) {
+    // weak, because the gzip and the identity variant share the tag
+    EntityTag entityTag = new EntityTag(body.hash(), true);
+    CacheControl cacheControl = new CacheControl();
+    cacheControl.setPrivate(true);
+    cacheControl.setNoCache(true);
+    cacheControl.setNoTransform(false);
+
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      return notModified.cacheControl(cacheControl).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
+    Response.ResponseBuilder response = Response.ok()
+            .type(JSON_UTF_8)
+            .tag(entityTag)
+            .cacheControl(cacheControl)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (body.gzip() != null && acceptsGzip(headers)) {
+      return response.entity(body.gzip()).header(HttpHeaders.CONTENT_ENCODING, GZIP).build();
+    }
+    return response.entity(body.json()).build();
+  }
+
+  private static boolean acceptsGzip(HttpHeaders headers) {
+    String acceptEncoding = headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING);
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+      String[] parts = coding.trim().split(";");
+      if (parts[0].trim().equals(GZIP)) {
+        return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0{0,3})?");
+      }
+    }
+    return false;
+  }
+}
@@ -1,7 +1,10 @@
 package de.explore.grabby.booking.rest;
 
 import de.explore.grabby.booking.model.news.News;
+import de.explore.grabby.booking.service.NewsBroadcaster;
 import de.explore.grabby.booking.service.NewsService;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Multi;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
@@ -13,6 +16,7 @@ import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
 import java.util.List;
 
@@ -24,6 +28,9 @@ public class NewsResource {
   @Inject
   NewsService newsService;
 
+  @Inject
+  NewsBroadcaster newsBroadcaster;
+
   @Inject
   JsonWebToken jwt;
 
@@ -37,4 +44,19 @@ public class NewsResource {
   public List<News> getNews() {
     return newsService.getAllCurrentNews(jwt.getSubject());
   }
+
+  @GET
+  @Path("/stream")
+  @Blocking
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  @RestStreamElementType(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Stream news", description = "Sends all current news of the authenticated user and afterwards every new news as server-sent event.")
+  @APIResponse(
+          responseCode = "200",
+          description = "News stream opened",
+          content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS, schema = @Schema(implementation = News.class))
+  )
+  public Multi<News> streamNews() {
+    return newsBroadcaster.stream(jwt.getSubject());
+  }
 }
@@ -0,0 +1,45 @@
+package de.explore.grabby.booking.rest;
+
+import de.explore.grabby.booking.model.suggestion.Suggestion;
+import de.explore.grabby.booking.service.SuggestionIndex;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+@Path("/suggest")
+@Tag(name = "Suggestion", description = "Typeahead suggestions for the search box")
+@Produces(MediaType.APPLICATION_JSON)
+public class SuggestionResource {
+
+  private static final int DEFAULT_LIMIT = 10;
+
+  private static final int MAX_LIMIT = 50;
+
+  @Inject
+  SuggestionIndex suggestionIndex;
+
+  @GET
+  @Operation(summary = "Get suggestions", description = "Returns names of booking entities and shops and console types that start with the words of the query, followed by similar names if the query may contain typos. Archived entities and shops are not suggested.")
+  @APIResponses({
+          @APIResponse(responseCode = "200", description = "Got suggestions, empty for an empty query",
+                  content = @Content(schema = @Schema(implementation = Suggestion[].class))),
+          @APIResponse(responseCode = "400", description = "Invalid limit")
+  })
+  @Parameter(name = "q", description = "Text typed so far")
+  @Parameter(name = "limit", description = "Maximum number of suggestions (1 to 50), defaults to 10")
+  public List<Suggestion> getSuggestions(@QueryParam("q") String query, @QueryParam("limit") Integer limit) {
+    if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+      throw new BadRequestException("Limit has to be between 1 and " + MAX_LIMIT);
+    }
+    return suggestionIndex.suggest(query, limit != null ? limit : DEFAULT_LIMIT);
+  }
+}
@@ -1,12 +1,23 @@
 package de.explore.grabby.booking.rest.entity;
 
+import de.explore.grabby.booking.model.availability.EntityAvailability;
 import de.explore.grabby.booking.model.entity.BookingEntity;
 import de.explore.grabby.booking.model.entity.Console;
 import de.explore.grabby.booking.model.entity.ConsoleAccessory;
 import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageManifestEntry;
+import de.explore.grabby.booking.model.image.ImageSize;
 import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import de.explore.grabby.booking.repository.entity.EntityListQuery;
+import de.explore.grabby.booking.repository.entity.EntitySearchQuery;
+import de.explore.grabby.booking.rest.DownloadResponses;
+import de.explore.grabby.booking.rest.JsonResponses;
 import de.explore.grabby.booking.rest.request.UploadForm;
+import de.explore.grabby.booking.service.AvailabilityService;
 import de.explore.grabby.booking.service.BookingEntityService;
+import de.explore.grabby.booking.service.EntityCatalog;
+import de.explore.grabby.booking.service.PresignedImageUrls.PresignedUrl;
 import io.quarkus.runtime.util.StringUtil;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
@@ -14,8 +25,12 @@ import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 import org.apache.http.HttpStatus;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -24,16 +39,20 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Path("/entities")
 @Tag(name = "Booking Entities", description = "Operations related to booking entities")
 public class BookingEntityResource {
   public static final String STATUS_ARCHIVED = "archived";
   public static final String STATUS_UNARCHIVED = "unarchived";
+  public static final int MAX_MANIFEST_IDS = 200;
 
   // TODO: Add here post endpoint?
   @Inject
@@ -42,6 +61,12 @@ public class BookingEntityResource {
   @Inject
   BookingEntityService bookingEntityService;
 
+  @Inject
+  AvailabilityService availabilityService;
+
+  @Inject
+  EntityCatalog entityCatalog;
+
   @Path("/{id}")
   @GET
   @Operation(summary = "Find booking entity by ID", description = "Returns the booking entity associated with the provided ID")
@@ -60,15 +85,78 @@ public class BookingEntityResource {
   @APIResponse(responseCode = "200", description = "Got all entities",
           content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingEntity[].class)))
   @Parameter(name = "status", description = "Status filter for entities (archived or unarchived)")
-  public List<BookingEntity> getAllEntities(@QueryParam("status") String status) {
-    if (StringUtil.isNullOrEmpty(status)) {
-      return bookingEntityRepository.listAll();
-    } else if (status.equals(STATUS_ARCHIVED)) {
-      return bookingEntityRepository.listAllArchived();
-    } else if (status.equals(STATUS_UNARCHIVED)) {
-      return bookingEntityRepository.listAllNotArchived();
+  @Parameter(name = "cursor", description = "Cursor of the next page from the Link header of the previous page")
+  @Parameter(name = "limit", description = "Maximum number of entities per page (1 to 200), pages the list if set")
+  @Parameter(name = "fields", description = "Comma separated fields to return besides the id, for example name,type,image")
+  public Response getAllEntities(@QueryParam("status") String status, @QueryParam("cursor") String cursor,
+                                 @QueryParam("limit") Integer limit, @QueryParam("fields") String fields,
+                                 @Context UriInfo uriInfo, @Context Request request, @Context HttpHeaders headers) {
+    Boolean archived = getArchivedFilter(status);
+    EntityListQuery query = EntityListQuery.of(cursor, limit, fields);
+    if (query.isPaged() || query.isProjected()) {
+      return EntityPageResponses.create(bookingEntityRepository.findPage(archived, query), query, uriInfo);
     }
-    throw new BadRequestException("Unknown status type");
+    if (archived == null) {
+      return JsonResponses.create(request, headers, entityCatalog.getEncodedAll());
+    } else if (archived) {
+      return JsonResponses.create(request, headers, entityCatalog.getEncodedArchived());
+    }
+    return JsonResponses.create(request, headers, entityCatalog.getEncodedNotArchived());
+  }
+
+  @Path("/search")
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Search booking entities", description = "Returns the booking entities whose name or description contain words starting with every word of the search text, best matches first")
+  @APIResponses({
+          @APIResponse(responseCode = "200", description = "Got matching entities",
+                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingEntity[].class))),
+          @APIResponse(responseCode = "400", description = "Empty search text or invalid filter")
+  })
+  @Parameter(name = "q", description = "Search text", required = true)
+  @Parameter(name = "type", description = "Type filter for entities (game, console or accessory)")
+  @Parameter(name = "consoleType", description = "Console filter for games and accessories")
+  @Parameter(name = "status", description = "Status filter for entities (archived or unarchived)")
+  @Parameter(name = "limit", description = "Maximum number of results (1 to 100), defaults to 20")
+  @Parameter(name = "offset", description = "Number of best matches to skip, defaults to 0")
+  public List<BookingEntity> searchEntities(@QueryParam("q") String text, @QueryParam("type") String type,
+                                            @QueryParam("consoleType") String consoleType, @QueryParam("status") String status,
+                                            @QueryParam("limit") Integer limit, @QueryParam("offset") Integer offset) {
+    EntitySearchQuery search = EntitySearchQuery.of(text, type, consoleType, getArchivedFilter(status), limit, offset);
+    return bookingEntityRepository.search(search);
+  }
+
+  @Path("/availability")
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Get availability of all entities", description = "Returns the booked days of all not archived booking entities within the requested range")
+  @APIResponses({
+          @APIResponse(responseCode = "200", description = "Got availability of all entities",
+                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = EntityAvailability[].class))),
+          @APIResponse(responseCode = "400", description = "Requested range is outside of the next 365 days")
+  })
+  @Parameter(name = "from", description = "First day of the range, defaults to today")
+  @Parameter(name = "to", description = "Last day of the range, defaults to 364 days from today")
+  public List<EntityAvailability> getAvailabilityForAllEntities(@QueryParam("from") LocalDate from, @QueryParam("to") LocalDate to) {
+    return availabilityService.getAvailabilityForAllEntities(from, to);
+  }
+
+  @Path("/{id}/availability")
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Get availability of entity", description = "Returns the booked days of the booking entity within the requested range")
+  @APIResponses({
+          @APIResponse(responseCode = "200", description = "Got availability for entity with provided id",
+                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = EntityAvailability.class))),
+          @APIResponse(responseCode = "400", description = "Requested range is outside of the next 365 days"),
+          @APIResponse(responseCode = "404", description = "No entity found for provided id")
+  })
+  @Parameter(name = "id", description = "ID of the booking entity", required = true)
+  @Parameter(name = "from", description = "First day of the range, defaults to today")
+  @Parameter(name = "to", description = "Last day of the range, defaults to 364 days from today")
+  public EntityAvailability getAvailabilityForEntity(@PathParam("id") long id, @QueryParam("from") LocalDate from, @QueryParam("to") LocalDate to) {
+    ensureEntityExists(id);
+    return availabilityService.getAvailabilityForEntity(id, from, to);
   }
 
   @Path("/{id}/image")
@@ -77,17 +165,51 @@ public class BookingEntityResource {
   @APIResponses({
           @APIResponse(responseCode = "200", description = "Got image for entity with provided id",
                   content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM)),
+          @APIResponse(responseCode = "206", description = "Got the requested byte range of the image",
+                  content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM)),
+          @APIResponse(responseCode = "302", description = "Redirect to a presigned S3 URL of the image"),
+          @APIResponse(responseCode = "304", description = "Image was not modified"),
+          @APIResponse(responseCode = "400", description = "Unknown image size"),
           @APIResponse(responseCode = "404", description = "No entity found for provided id")
   })
   @Parameter(name = "id", description = "ID of the booking entity to fetch image", required = true)
+  @Parameter(name = "size", description = "Size of the image (128, 512 or original), defaults to original")
+  @Parameter(name = "version", description = "Filename of the current image, lets the client cache the response forever")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
-  public Response getImageForEntity(@PathParam("id") long id) {
+  public Response getImageForEntity(@PathParam("id") long id, @QueryParam("size") @DefaultValue("original") String size,
+                                    @QueryParam("version") String version, @Context Request request,
+                                    @Context HttpHeaders headers) {
+    ImageSize imageSize = ImageSize.fromValue(size).orElseThrow(() -> new BadRequestException("Unknown image size"));
     ensureEntityExists(id);
-    ResponseInputStream<GetObjectResponse> response = bookingEntityService.getImageForEntity(id);
-    if (response == null) {
-      response = bookingEntityService.getDefaultEntityImage();
+    Image image = bookingEntityService.getImageOrDefault(id);
+    Optional<PresignedUrl> url = bookingEntityService.getImageUrl(image, imageSize);
+    if (url.isPresent()) {
+      return DownloadResponses.redirect(request, imageSize.getKey(image.getFilename()), url.get().uri(), url.get().renewAt());
+    }
+    return DownloadResponses.create(request, headers, imageSize.getKey(image.getFilename()), image.getFilename().equals(version),
+            () -> bookingEntityService.getImage(image, imageSize), range -> bookingEntityService.getImageRange(image, imageSize, range));
+  }
+
+  @Path("/images/manifest")
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Get image manifest of entities", description = "Returns key, ETag and URL of the images of all requested booking entities, or of the default image, without fetching any image")
+  @APIResponses({
+          @APIResponse(responseCode = "200", description = "Got the images of all existing entities, in the order of the ids",
+                  content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImageManifestEntry[].class))),
+          @APIResponse(responseCode = "400", description = "No ids, too many ids or unknown image size")
+  })
+  @Parameter(name = "size", description = "Size of the images (128, 512 or original), defaults to original")
+  public List<ImageManifestEntry> getImageManifest(List<Long> ids, @QueryParam("size") @DefaultValue("original") String size,
+                                                   @Context UriInfo uriInfo) {
+    ImageSize imageSize = ImageSize.fromValue(size).orElseThrow(() -> new BadRequestException("Unknown image size"));
+    if (ids == null || ids.isEmpty() || ids.size() > MAX_MANIFEST_IDS) {
+      throw new BadRequestException("Between 1 and " + MAX_MANIFEST_IDS + " ids have to be requested");
     }
-    return Response.ok(response).build();
+    Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+    return bookingEntityService.getImageManifest(uniqueIds, imageSize,
+            uriInfo.getBaseUriBuilder().path(BookingEntityResource.class).path("{id}/image"));
   }
 
   @RolesAllowed("${admin-role}")
@@ -100,7 +222,7 @@ public class BookingEntityResource {
   })
   @Parameter(name = "entity", description = "Booking entity to be created", required = true)
   public Response persistEntity(@Valid @NotNull BookingEntity entity) {
-    bookingEntityRepository.persist(entity);
+    bookingEntityRepository.persistEntity(entity);
     return Response.status(201).build();
   }
 
@@ -141,9 +263,10 @@ public class BookingEntityResource {
   @PUT
   @Operation(summary = "Upload image for a booking entity", description = "Uploads an image for the booking entity with the provided ID")
   @APIResponses({
-          @APIResponse(responseCode = "200", description = "Uploaded image for entity with provided id"),
+          @APIResponse(responseCode = "202", description = "Image was accepted, the image status of the entity shows when it is stored"),
           @APIResponse(responseCode = "400", description = "File is empty"),
-          @APIResponse(responseCode = "404", description = "No entity found for provided id")
+          @APIResponse(responseCode = "404", description = "No entity found for provided id"),
+          @APIResponse(responseCode = "503", description = "Too many images are being processed")
   })
   @Consumes(MediaType.MULTIPART_FORM_DATA)
   @Parameter(name = "id", description = "ID of the booking entity to upload the image for", required = true)
@@ -151,7 +274,25 @@ public class BookingEntityResource {
   public Response uploadImageForEntity(@PathParam("id") long id, @Valid @NotNull UploadForm uploadForm) {
     ensureEntityExists(id);
     bookingEntityService.uploadImageForEntity(id, uploadForm);
-    return Response.status(HttpStatus.SC_CREATED).build();
+    return Response.status(HttpStatus.SC_ACCEPTED).build();
+  }
+
+  @RolesAllowed("${admin-role}")
+  @Path("/{id}/image")
+  @PUT
+  @Operation(summary = "Stream image for a booking entity", description = "Uploads the request body as image for the booking entity with the provided ID, without staging it on disk")
+  @APIResponses({
+          @APIResponse(responseCode = "202", description = "Image was accepted, the image status of the entity shows when it is stored"),
+          @APIResponse(responseCode = "404", description = "No entity found for provided id"),
+          @APIResponse(responseCode = "413", description = "Image is larger than the request body limit"),
+          @APIResponse(responseCode = "503", description = "Too many concurrent uploads")
+  })
+  @Consumes({"image/*", MediaType.APPLICATION_OCTET_STREAM})
+  @Parameter(name = "id", description = "ID of the booking entity to upload the image for", required = true)
+  public Response streamImageForEntity(@PathParam("id") long id, InputStream image) {
+    ensureEntityExists(id);
+    bookingEntityService.uploadImageForEntity(id, image);
+    return Response.status(HttpStatus.SC_ACCEPTED).build();
   }
 
 
@@ -179,7 +320,18 @@ public class BookingEntityResource {
 
     ConsoleAccessory consoleAccessory = new ConsoleAccessory("Joycons", "blau-gelb", nintendoSwitch);
 
-    bookingEntityRepository.persist(game1, game2, console, consoleAccessory);
+    List.of(game1, game2, console, consoleAccessory).forEach(bookingEntityRepository::persistEntity);
+  }
+
+  private Boolean getArchivedFilter(String status) {
+    if (StringUtil.isNullOrEmpty(status)) {
+      return null;
+    } else if (status.equals(STATUS_ARCHIVED)) {
+      return true;
+    } else if (status.equals(STATUS_UNARCHIVED)) {
+      return false;
+    }
+    throw new BadRequestException("Unknown status type");
   }
 
   private void ensureEntityExists(Long id) {
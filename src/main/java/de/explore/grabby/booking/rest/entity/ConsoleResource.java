@@ -2,14 +2,21 @@ package de.explore.grabby.booking.rest.entity;
 
 import de.explore.grabby.booking.model.entity.Console;
 import de.explore.grabby.booking.repository.entity.ConsoleRepository;
+import de.explore.grabby.booking.repository.entity.EntityListQuery;
+import de.explore.grabby.booking.rest.JsonResponses;
+import de.explore.grabby.booking.service.EntityCatalog;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
@@ -18,7 +25,6 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 
-import java.util.List;
 import java.util.Optional;
 
 @Path("/consoles")
@@ -28,13 +34,25 @@ public class ConsoleResource {
     @Inject
     ConsoleRepository consoleRepository;
 
+    @Inject
+    EntityCatalog entityCatalog;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Get all consoles", description = "Returns a list of all game consoles")
     @APIResponse(responseCode = "200", description = "Successfully retrieved all consoles",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Console.class)))
-    public List<Console> getAllConsoles() {
-        return consoleRepository.getAllConsoles();
+    @Parameter(name = "cursor", description = "Cursor of the next page from the Link header of the previous page")
+    @Parameter(name = "limit", description = "Maximum number of entities per page (1 to 200), pages the list if set")
+    @Parameter(name = "fields", description = "Comma separated fields to return besides the id, for example name,type,image")
+    public Response getAllConsoles(@QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit,
+                                   @QueryParam("fields") String fields, @Context UriInfo uriInfo,
+                                   @Context Request request, @Context HttpHeaders headers) {
+        EntityListQuery query = EntityListQuery.of(cursor, limit, fields);
+        if (!query.isPaged() && !query.isProjected()) {
+            return JsonResponses.create(request, headers, entityCatalog.getEncodedOfType(Console.class, consoleRepository::getAllConsoles));
+        }
+        return EntityPageResponses.create(consoleRepository.findPage(query), query, uriInfo);
     }
 
     @RolesAllowed("${admin-role}")
@@ -0,0 +1,28 @@
+package de.explore.grabby.booking.rest.entity;
+
+import de.explore.grabby.booking.repository.entity.EntityListQuery;
+import de.explore.grabby.booking.repository.entity.EntityPage;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+/**
+ * Builds the responses of paged entity lists. The body stays a plain array, the URL of the next page is sent as
+ * {@code Link} header with {@code rel="next"}.
+ */
+final class EntityPageResponses {
+
+  private EntityPageResponses() {
+  }
+
+  static Response create(EntityPage page, EntityListQuery query, UriInfo uriInfo) {
+    Response.ResponseBuilder response = Response.ok(page.items(), MediaType.APPLICATION_JSON);
+    if (page.next() != null) {
+      response.link(uriInfo.getRequestUriBuilder()
+              .replaceQueryParam("cursor", page.next().encode())
+              .replaceQueryParam("limit", query.limit())
+              .build(), "next");
+    }
+    return response.build();
+  }
+}
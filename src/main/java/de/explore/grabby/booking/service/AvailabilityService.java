@@ -0,0 +1,53 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.availability.EntityAvailability;
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@ApplicationScoped
+public class AvailabilityService {
+
+  @Inject
+  BookingAvailabilityIndex availabilityIndex;
+
+  @Inject
+  EntityCatalog entityCatalog;
+
+  public EntityAvailability getAvailabilityForEntity(long id, LocalDate from, LocalDate to) {
+    OccupancyBitmap occupancy = availabilityIndex.getOccupancy(id);
+    return createAvailability(id, occupancy, from, to);
+  }
+
+  public List<EntityAvailability> getAvailabilityForAllEntities(LocalDate from, LocalDate to) {
+    List<Long> entityIds = entityCatalog.listAllNotArchived()
+            .stream()
+            .map(BookingEntity::getId)
+            .toList();
+    Map<Long, OccupancyBitmap> occupancies = availabilityIndex.getOccupancies(entityIds);
+    return entityIds.stream()
+            .map(entityId -> createAvailability(entityId, occupancies.get(entityId), from, to))
+            .toList();
+  }
+
+  private EntityAvailability createAvailability(long entityId, OccupancyBitmap occupancy, LocalDate from, LocalDate to) {
+    LocalDate requestedFrom = from != null ? from : occupancy.getWindowStart();
+    LocalDate requestedTo = to != null ? to : occupancy.getWindowEnd();
+    ensureRangeIsInsideWindow(occupancy, requestedFrom, requestedTo);
+    return new EntityAvailability(entityId, requestedFrom, requestedTo, occupancy.getOccupiedDays(requestedFrom, requestedTo));
+  }
+
+  private void ensureRangeIsInsideWindow(OccupancyBitmap occupancy, LocalDate from, LocalDate to) {
+    if (from.isAfter(to)) {
+      throw new BadRequestException("Start of range must not be after its end");
+    }
+    if (from.isBefore(occupancy.getWindowStart()) || to.isAfter(occupancy.getWindowEnd())) {
+      throw new BadRequestException("Availability is only known from today up to " + OccupancyBitmap.WINDOW_DAYS + " days ahead");
+    }
+  }
+}
@@ -0,0 +1,250 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.Booking;
+import de.explore.grabby.booking.model.event.BookingChangedEvent;
+import de.explore.grabby.booking.repository.BookingRepository;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of all active (not cancelled, not returned) bookings, grouped by booking entity.
+ * It is warmed at startup, kept in sync through committed {@link BookingChangedEvent}s and lazily
+ * loads entities it does not know yet.
+ */
+@ApplicationScoped
+public class BookingAvailabilityIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookingAvailabilityIndex.class);
+
+  private final Map<Long, EntityIntervals> intervalsByEntity = new ConcurrentHashMap<>();
+
+  private final AtomicLong modifications = new AtomicLong();
+
+  @Inject
+  BookingRepository bookingRepository;
+
+  void onStart(@Observes StartupEvent event) {
+    Map<Long, List<Booking>> activeBookingsByEntity = bookingRepository.listAllActiveBookings()
+            .stream()
+            .collect(Collectors.groupingBy(booking -> booking.getBookingEntity().getId()));
+    activeBookingsByEntity.forEach((entityId, bookings) -> intervalsByEntity.put(entityId, EntityIntervals.of(bookings)));
+    LOG.info("Warmed availability index with {} entities", activeBookingsByEntity.size());
+  }
+
+  void onBookingChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) BookingChangedEvent event) {
+    modifications.incrementAndGet();
+    EntityIntervals updated = intervalsByEntity.compute(event.getEntityId(), (entityId, intervals) -> {
+      if (intervals == null) {
+        return null;
+      }
+      return event.isActive()
+              ? intervals.with(event.getBookingId(), event.getStartDate(), event.getEndDate())
+              : intervals.without(event.getBookingId());
+    });
+    if (updated != null) {
+      updated.occupancy(LocalDate.now());
+    }
+  }
+
+  /**
+   * Checks whether no other active booking of the entity overlaps the given date range (both inclusive).
+   */
+  public boolean isAvailable(long entityId, long ignoredBookingId, LocalDate from, LocalDate to) {
+    return !getIntervals(entityId).overlaps(ignoredBookingId, from, to);
+  }
+
+  public OccupancyBitmap getOccupancy(long entityId) {
+    return getIntervals(entityId).occupancy(LocalDate.now());
+  }
+
+  public Map<Long, OccupancyBitmap> getOccupancies(Collection<Long> entityIds) {
+    LocalDate today = LocalDate.now();
+    Map<Long, OccupancyBitmap> occupancies = new HashMap<>();
+    getAllIntervals(entityIds).forEach((entityId, intervals) -> occupancies.put(entityId, intervals.occupancy(today)));
+    return occupancies;
+  }
+
+  private Map<Long, EntityIntervals> getAllIntervals(Collection<Long> entityIds) {
+    Map<Long, EntityIntervals> intervals = new HashMap<>();
+    List<Long> missingEntityIds = entityIds.stream().filter(entityId -> !intervalsByEntity.containsKey(entityId)).toList();
+    if (!missingEntityIds.isEmpty()) {
+      long modificationsBeforeLoad = modifications.get();
+      Map<Long, List<Booking>> activeBookingsByEntity = bookingRepository.listAllActiveBookingsByEntities(missingEntityIds)
+              .stream()
+              .collect(Collectors.groupingBy(booking -> booking.getBookingEntity().getId()));
+      for (Long entityId : missingEntityIds) {
+        EntityIntervals loaded = EntityIntervals.of(activeBookingsByEntity.getOrDefault(entityId, List.of()));
+        intervals.put(entityId, cacheIfUnchanged(entityId, loaded, modificationsBeforeLoad));
+      }
+    }
+    for (Long entityId : entityIds) {
+      intervals.computeIfAbsent(entityId, this::getIntervals);
+    }
+    return intervals;
+  }
+
+  /**
+   * Caches the loaded intervals unless the entity is cached already or a booking was changed while they were loaded.
+   * The check runs within the same {@code compute} as the update of an event, so an event can not slip in between.
+   */
+  private EntityIntervals cacheIfUnchanged(long entityId, EntityIntervals loaded, long modificationsBeforeLoad) {
+    EntityIntervals cached = intervalsByEntity.compute(entityId, (id, current) -> {
+      if (current != null) {
+        return current;
+      }
+      return modificationsBeforeLoad == modifications.get() ? loaded : null;
+    });
+    return cached != null ? cached : loaded;
+  }
+
+  private EntityIntervals getIntervals(long entityId) {
+    EntityIntervals intervals = intervalsByEntity.get(entityId);
+    if (intervals != null) {
+      return intervals;
+    }
+    long modificationsBeforeLoad = modifications.get();
+    EntityIntervals loaded = EntityIntervals.of(bookingRepository.listAllActiveBookingsByEntity(entityId));
+    // only cache the snapshot if no booking was changed while it was loaded
+    return cacheIfUnchanged(entityId, loaded, modificationsBeforeLoad);
+  }
+
+  /**
+   * Immutable list of booking intervals sorted by start date. {@code maxEndDates[i]} holds the latest end date
+   * of the intervals {@code 0..i}, so an overlap search can stop as soon as no earlier interval reaches the range.
+   */
+  static final class EntityIntervals {
+
+    private static final EntityIntervals EMPTY = new EntityIntervals(new long[0], new LocalDate[0], new LocalDate[0]);
+
+    private final long[] bookingIds;
+
+    private final LocalDate[] startDates;
+
+    private final LocalDate[] endDates;
+
+    private final LocalDate[] maxEndDates;
+
+    private volatile OccupancyBitmap occupancy;
+
+    private EntityIntervals(long[] bookingIds, LocalDate[] startDates, LocalDate[] endDates) {
+      this.bookingIds = bookingIds;
+      this.startDates = startDates;
+      this.endDates = endDates;
+      this.maxEndDates = new LocalDate[endDates.length];
+      for (int i = 0; i < endDates.length; i++) {
+        maxEndDates[i] = i == 0 || endDates[i].isAfter(maxEndDates[i - 1]) ? endDates[i] : maxEndDates[i - 1];
+      }
+    }
+
+    static EntityIntervals of(List<Booking> bookings) {
+      EntityIntervals intervals = EMPTY;
+      for (Booking booking : bookings) {
+        intervals = intervals.with(booking.getId(), booking.getStartDate(), booking.getEndDate());
+      }
+      return intervals;
+    }
+
+    EntityIntervals with(long bookingId, LocalDate startDate, LocalDate endDate) {
+      EntityIntervals base = without(bookingId);
+      int size = base.bookingIds.length;
+      int insertAt = upperBound(base.startDates, startDate);
+
+      long[] ids = new long[size + 1];
+      LocalDate[] starts = new LocalDate[size + 1];
+      LocalDate[] ends = new LocalDate[size + 1];
+      copyWithGap(base, ids, starts, ends, insertAt);
+      ids[insertAt] = bookingId;
+      starts[insertAt] = startDate;
+      ends[insertAt] = endDate;
+      return new EntityIntervals(ids, starts, ends);
+    }
+
+    EntityIntervals without(long bookingId) {
+      int index = indexOf(bookingId);
+      if (index < 0) {
+        return this;
+      }
+      int size = bookingIds.length - 1;
+      long[] ids = new long[size];
+      LocalDate[] starts = new LocalDate[size];
+      LocalDate[] ends = new LocalDate[size];
+      System.arraycopy(bookingIds, 0, ids, 0, index);
+      System.arraycopy(startDates, 0, starts, 0, index);
+      System.arraycopy(endDates, 0, ends, 0, index);
+      System.arraycopy(bookingIds, index + 1, ids, index, size - index);
+      System.arraycopy(startDates, index + 1, starts, index, size - index);
+      System.arraycopy(endDates, index + 1, ends, index, size - index);
+      return new EntityIntervals(ids, starts, ends);
+    }
+
+    OccupancyBitmap occupancy(LocalDate windowStart) {
+      OccupancyBitmap current = occupancy;
+      if (current == null || !current.getWindowStart().equals(windowStart)) {
+        current = OccupancyBitmap.of(windowStart, startDates, endDates);
+        occupancy = current;
+      }
+      return current;
+    }
+
+    boolean overlaps(long ignoredBookingId, LocalDate from, LocalDate to) {
+      // last interval starting on or before the end of the requested range
+      int i = upperBound(startDates, to) - 1;
+      for (; i >= 0 && !maxEndDates[i].isBefore(from); i--) {
+        if (bookingIds[i] != ignoredBookingId && !endDates[i].isBefore(from)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private int indexOf(long bookingId) {
+      for (int i = 0; i < bookingIds.length; i++) {
+        if (bookingIds[i] == bookingId) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private static void copyWithGap(EntityIntervals source, long[] ids, LocalDate[] starts, LocalDate[] ends, int gap) {
+      int size = source.bookingIds.length;
+      System.arraycopy(source.bookingIds, 0, ids, 0, gap);
+      System.arraycopy(source.startDates, 0, starts, 0, gap);
+      System.arraycopy(source.endDates, 0, ends, 0, gap);
+      System.arraycopy(source.bookingIds, gap, ids, gap + 1, size - gap);
+      System.arraycopy(source.startDates, gap, starts, gap + 1, size - gap);
+      System.arraycopy(source.endDates, gap, ends, gap + 1, size - gap);
+    }
+
+    /**
+     * Returns the index of the first start date that is after the given date.
+     */
+    private static int upperBound(LocalDate[] sortedDates, LocalDate date) {
+      int low = 0;
+      int high = sortedDates.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (sortedDates[middle].isAfter(date)) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+  }
+}
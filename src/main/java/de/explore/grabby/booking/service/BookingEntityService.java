@@ -2,16 +2,32 @@ package de.explore.grabby.booking.service;
 
 import de.explore.grabby.booking.model.entity.BookingEntity;
 import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.EntityImage;
+import de.explore.grabby.booking.model.image.ImageManifestEntry;
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import de.explore.grabby.booking.model.image.StagedUpload;
 import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
 import de.explore.grabby.booking.rest.request.UploadForm;
+import de.explore.grabby.booking.service.PresignedImageUrls.PresignedUrl;
+import de.explore.grabby.booking.service.storage.StoredObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.UriBuilder;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class BookingEntityService {
@@ -23,21 +39,96 @@ public class BookingEntityService {
   @Inject
   FileService fileService;
 
+  @Inject
+  ImageCache imageCache;
+
+  @Inject
+  PresignedImageUrls presignedImageUrls;
+
+  @Inject
+  ImageProcessingQueue imageProcessingQueue;
+
   @Inject
   BookingEntityRepository bookingEntityRepository;
 
   @ConfigProperty(name = "bucket.name")
   String bucket;
 
-  @Transactional
+  /**
+   * Accepts the image and stores it in the background. The image status stays {@link ImageStatus#PROCESSING} until
+   * the image was stored, the previous image is served meanwhile.
+   */
   public void uploadImageForEntity(Long id, UploadForm form) {
-    BookingEntity bookingEntity = bookingEntityRepository.findByIdOptional(id).orElseThrow();
-    String filename = fileService.uploadImage(bucket, form);
-    Image image = createImageObject(filename);
+    imageProcessingQueue.reserve();
+    Path stagedFile;
+    try {
+      stagedFile = imageProcessingQueue.stage(form.file.toPath());
+    } catch (RuntimeException e) {
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    String uploadId;
+    try {
+      uploadId = bookingEntityRepository.startImageUpload(id);
+    } catch (RuntimeException e) {
+      imageProcessingQueue.discard(stagedFile);
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    imageProcessingQueue.submit(() -> processImage(id, uploadId, () -> fileService.uploadImage(bucket, stagedFile),
+            () -> imageProcessingQueue.discard(stagedFile)));
+  }
+
+  /**
+   * Like {@link #uploadImageForEntity(Long, UploadForm)}, but streams the image into the image store without staging it on disk.
+   * Only hashing, resizing and storing under the final key happen in the background.
+   */
+  public void uploadImageForEntity(Long id, InputStream imageStream) {
+    imageProcessingQueue.reserve();
+    StagedUpload upload;
+    try {
+      upload = fileService.stageImage(bucket, imageStream);
+    } catch (RuntimeException e) {
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    String uploadId;
+    try {
+      uploadId = bookingEntityRepository.startImageUpload(id);
+    } catch (RuntimeException e) {
+      // the staged upload has no stored file yet, so the orphan cleanup would never remove it
+      fileService.discardImage(upload);
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    imageProcessingQueue.submit(() -> processImage(id, uploadId, () -> fileService.storeImage(upload),
+            () -> fileService.discardImage(upload)));
+  }
 
-    bookingEntity.setImage(image);
-    bookingEntityRepository.persist(bookingEntity);
-    LOG.info("Image was uploaded for entity with id {}", id);
+  /**
+   * Stores the image and applies it, unless a later upload for the same entity was accepted meanwhile. The image that
+   * is no longer used, the previous or the superseded one, is released.
+   */
+  private void processImage(long id, String uploadId, Supplier<String> store, Runnable cleanup) {
+    try {
+      Image image = createImageObject(store.get());
+      image.setStatus(ImageStatus.READY);
+      // only this short transaction touches the database, the upload above runs without one
+      Image unusedImage = bookingEntityRepository.finishImageUpload(id, uploadId, image);
+      if (unusedImage != null && unusedImage.getFilename() != null) {
+        fileService.releaseImage(unusedImage.getBucket(), unusedImage.getFilename());
+      }
+      if (unusedImage == image) {
+        LOG.info("Image for entity with id {} was superseded by a later upload", id);
+      } else {
+        LOG.info("Image was uploaded for entity with id {}", id);
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Image for entity with id {} could not be processed", id, e);
+      bookingEntityRepository.failImageUpload(id, uploadId);
+    } finally {
+      cleanup.run();
+    }
   }
 
   private Image createImageObject(String filename) {
@@ -47,15 +138,70 @@ public class BookingEntityService {
     return image;
   }
 
-  public ResponseInputStream<GetObjectResponse> getImageForEntity(long id) {
+  /**
+   * Returns the image of the entity or the default image if none was uploaded. No object is fetched from the image store.
+   */
+  public Image getImageOrDefault(long id) {
     BookingEntity bookingEntity = bookingEntityRepository.findByIdOptional(id).orElseThrow();
-    if (bookingEntity.getImage() == null) {
-      return null;
+    if (bookingEntity.getImage() == null || bookingEntity.getImage().getFilename() == null) {
+      return createImageObject(DEFAULT_ENTITY_IMAGE_PNG);
     }
-    return fileService.getImage(bookingEntity.getImage().getBucket(), bookingEntity.getImage().getFilename());
+    return bookingEntity.getImage();
+  }
+
+  /**
+   * Resolves the images of all given entities with one query, in the order of the ids, without contacting the image
+   * store. Ids of missing entities are skipped. The URL of an entry is a presigned URL if images are delivered by redirect, otherwise the versioned image
+   * URL built from {@code imageUri}, which the client may cache forever.
+   *
+   * @param imageUri URI of the image endpoint with an {@code id} template
+   */
+  public List<ImageManifestEntry> getImageManifest(Collection<Long> ids, ImageSize size, UriBuilder imageUri) {
+    Map<Long, EntityImage> images = bookingEntityRepository.findImagesByIds(ids).stream()
+            .collect(Collectors.toMap(EntityImage::getEntityId, Function.identity()));
+    return ids.stream()
+            .map(images::get)
+            .filter(Objects::nonNull)
+            .map(entityImage -> createManifestEntry(entityImage, size, imageUri))
+            .toList();
+  }
+
+  private ImageManifestEntry createManifestEntry(EntityImage entityImage, ImageSize size, UriBuilder imageUri) {
+    Image image = entityImage.getImage();
+    boolean isDefault = image.getFilename() == null;
+    Image resolvedImage = isDefault ? createImageObject(DEFAULT_ENTITY_IMAGE_PNG) : image;
+    String key = size.getKey(resolvedImage.getFilename());
+    String url = presignedImageUrls.getUrl(resolvedImage.getBucket(), resolvedImage.getFilename(), size,
+                    entityImage.getHasVariants())
+            .map(presignedUrl -> presignedUrl.uri().toString())
+            .orElseGet(() -> imageUri.clone()
+                    .queryParam("size", size.getValue())
+                    .queryParam("version", resolvedImage.getFilename())
+                    .build(entityImage.getEntityId())
+                    .toString());
+    return new ImageManifestEntry(entityImage.getEntityId(), key, size.getValue(), "\"" + key + "\"", url,
+            image.getStatus(), isDefault);
+  }
+
+  /**
+   * Returns the image as response entity, see {@link ImageCache#getImage}.
+   */
+  public Object getImage(Image image, ImageSize size) {
+    return imageCache.getImage(image.getBucket(), size.getKey(image.getFilename()),
+            () -> fileService.getImage(image.getBucket(), image.getFilename(), size));
+  }
+
+  /**
+   * Returns a presigned URL of the image if images are delivered by redirect.
+   */
+  public Optional<PresignedUrl> getImageUrl(Image image, ImageSize size) {
+    return presignedImageUrls.getUrl(image.getBucket(), image.getFilename(), size);
   }
 
-  public ResponseInputStream<GetObjectResponse> getDefaultEntityImage() {
-    return fileService.getImage(bucket, DEFAULT_ENTITY_IMAGE_PNG);
+  /**
+   * Returns a byte range of the image. Ranges bypass the image cache.
+   */
+  public StoredObject getImageRange(Image image, ImageSize size, String range) {
+    return fileService.getImage(image.getBucket(), image.getFilename(), size, range);
   }
 }
@@ -2,19 +2,80 @@ package de.explore.grabby.booking.service;
 
 import de.explore.grabby.booking.model.Booking;
 import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.event.BookingWrittenEvent;
 import de.explore.grabby.booking.repository.BookingRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.exception.ConstraintViolationException;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ApplicationScoped
 public class BookingService {
 
+  // SQL state of an exclusion constraint violation, raised by booking_period_not_overlapping
+  private static final String EXCLUSION_VIOLATION = "23P01";
+
   @Inject
   BookingRepository repository;
 
+  @Inject
+  BookingAvailabilityIndex availabilityIndex;
+
+  @ConfigProperty(name = "booking.availability-index.enabled", defaultValue = "true")
+  boolean availabilityIndexEnabled;
+
+  private final Map<String, Long> activeBookingsByUser = new ConcurrentHashMap<>();
+
+  private final AtomicLong bookingWrites = new AtomicLong();
+
+  public long countActiveBookingsOfUser(String userId) {
+    Long cachedCount = activeBookingsByUser.get(userId);
+    if (cachedCount != null) {
+      return cachedCount;
+    }
+    long writesBeforeCount = bookingWrites.get();
+    long count = repository.countActiveBookingsByUser(userId);
+    // a booking written while counting may already be missing in the result, the check runs within the compute so a
+    // concurrent invalidation can not slip in between
+    activeBookingsByUser.compute(userId, (id, current) -> writesBeforeCount == bookingWrites.get() ? Long.valueOf(count) : current);
+    return count;
+  }
+
+  /**
+   * Drops the cached count of the user when a booking was written and again once the transaction completed, so that
+   * a count that ran before the commit can not stay cached.
+   */
+  void onBookingWritten(@Observes BookingWrittenEvent event) {
+    invalidateActiveBookingCount(event.getUserId());
+  }
+
+  void onBookingWriteCompleted(@Observes(during = TransactionPhase.AFTER_COMPLETION) BookingWrittenEvent event) {
+    invalidateActiveBookingCount(event.getUserId());
+  }
+
+  private void invalidateActiveBookingCount(String userId) {
+    bookingWrites.incrementAndGet();
+    activeBookingsByUser.remove(userId);
+  }
+
+  public void create(List<Booking> bookings, String userId) {
+    try {
+      repository.create(bookings, userId);
+    } catch (ConstraintViolationException e) {
+      throw translateOverlap(e);
+    }
+  }
+
   public boolean extendById(long bookingId, long requestedDays) {
     Booking requestedBooking = repository.findById(bookingId);
     LocalDate requestedEndDate = requestedBooking.getEndDate().plusDays(requestedDays);
@@ -22,11 +83,28 @@ public class BookingService {
     if (!isEntityAvailable) {
       return false;
     }
-    repository.extendBooking(bookingId, requestedEndDate);
+    try {
+      repository.extendBooking(bookingId, requestedEndDate);
+    } catch (ConstraintViolationException e) {
+      throw translateOverlap(e);
+    }
     return true;
   }
 
+  /**
+   * Turns a violation of the overlap constraint into 409, the check before the insert can not see concurrent bookings.
+   */
+  private RuntimeException translateOverlap(ConstraintViolationException e) {
+    if (EXCLUSION_VIOLATION.equals(e.getSQLState())) {
+      return new ClientErrorException("Entity is already booked in the requested period", Response.Status.CONFLICT);
+    }
+    return e;
+  }
+
   private boolean ensureEntityIsAvailable(long bookingId, BookingEntity entity, LocalDate endDate, LocalDate requestedEndDate) {
+    if (availabilityIndexEnabled) {
+      return availabilityIndex.isAvailable(entity.getId(), bookingId, endDate, requestedEndDate);
+    }
     List<Booking> bookingsWithRequestedEntity = repository.findAllBookingsByEntityAndByStartDateAfterRequestedDate(bookingId, entity, requestedEndDate, endDate);
     return bookingsWithRequestedEntity.isEmpty();
   }
@@ -0,0 +1,25 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.Booking;
+import de.explore.grabby.booking.model.event.BookingWrittenEvent;
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Fires a {@link BookingWrittenEvent} for every written booking, also for those that were persisted or removed
+ * directly through the repository and therefore fired no {@link de.explore.grabby.booking.model.event.BookingChangedEvent}.
+ * Bulk statements like {@code deleteAll} bypass entity listeners and are not seen.
+ */
+public class BookingWriteListener {
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  void onWrite(Booking booking) {
+    if (booking.getUserId() != null) {
+      Arc.container().beanManager().getEvent().select(BookingWrittenEvent.class).fire(new BookingWrittenEvent(booking.getUserId()));
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package de.explore.grabby.booking.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes that are used as keys of uploaded files and as entity tags of pre-serialized responses.
+ */
+public final class ContentHashes {
+
+  private ContentHashes() {
+  }
+
+  public static String sha256(Path file) {
+    try (DigestInputStream input = digesting(Files.newInputStream(file))) {
+      input.transferTo(OutputStream.nullOutputStream());
+      return toHex(input);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static String sha256(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is supported by every Java runtime", e);
+    }
+  }
+
+  /**
+   * Wraps the stream so that the hash of everything read from it can be taken with {@link #toHex(DigestInputStream)}.
+   */
+  public static DigestInputStream digesting(InputStream input) {
+    try {
+      return new DigestInputStream(input, MessageDigest.getInstance("SHA-256"));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is supported by every Java runtime", e);
+    }
+  }
+
+  public static String toHex(DigestInputStream input) {
+    return HexFormat.of().formatHex(input.getMessageDigest().digest());
+  }
+}
@@ -0,0 +1,38 @@
+package de.explore.grabby.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body that was serialized to UTF-8 JSON once, and optionally compressed with gzip, so it can be sent to
+ * every client without serializing it again.
+ *
+ * @param gzip the compressed JSON, null if compression is disabled
+ * @param hash SHA-256 of the JSON, which identifies the content across restarts
+ */
+public record EncodedJson(byte[] json, byte[] gzip, String hash) {
+
+  public static EncodedJson of(ObjectWriter writer, Object value, boolean compress) {
+    try {
+      byte[] json = writer.writeValueAsBytes(value);
+      return new EncodedJson(json, compress ? gzip(json) : null, ContentHashes.sha256(json));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize response", e);
+    }
+  }
+
+  private static byte[] gzip(byte[] json) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+      gzip.write(json);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+}
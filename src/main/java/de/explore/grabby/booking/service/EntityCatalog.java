@@ -0,0 +1,141 @@
+package de.explore.grabby.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import io.quarkus.panache.common.Sort;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable in-memory snapshot of all booking entities, partitioned by archived status and type. The catalog is read
+ * on every page load but only changes a few times a week, so reads are served from the snapshot without locks and
+ * without a query. Every committed entity change builds a new snapshot and swaps it in, readers keep the snapshot
+ * they started with. The returned entities are shared and must not be modified.
+ * <p>
+ * The lists are also kept as encoded JSON, serialized once per snapshot, so that the catalog endpoints do not run
+ * Jackson on every request.
+ */
+@ApplicationScoped
+public class EntityCatalog {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EntityCatalog.class);
+
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+  @Inject
+  BookingEntityRepository bookingEntityRepository;
+
+  @Inject
+  ObjectMapper objectMapper;
+
+  @ConfigProperty(name = "entity-catalog.enabled", defaultValue = "true")
+  boolean enabled;
+
+  @ConfigProperty(name = "entity-catalog.gzip.enabled", defaultValue = "true")
+  boolean gzipEnabled;
+
+  private ObjectWriter listWriter;
+
+  @PostConstruct
+  void createWriter() {
+    // the declared element type makes Jackson write the type property of every entity, as for a List<BookingEntity>
+    listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, BookingEntity.class));
+  }
+
+  public List<BookingEntity> listAllNotArchived() {
+    return enabled ? getSnapshot().notArchived() : bookingEntityRepository.listAllNotArchived();
+  }
+
+  public EncodedJson getEncodedAll() {
+    return encode("all", Snapshot::all, bookingEntityRepository::listAll);
+  }
+
+  public EncodedJson getEncodedArchived() {
+    return encode("archived", Snapshot::archived, bookingEntityRepository::listAllArchived);
+  }
+
+  public EncodedJson getEncodedNotArchived() {
+    return encode("not-archived", Snapshot::notArchived, bookingEntityRepository::listAllNotArchived);
+  }
+
+  /**
+   * Returns all entities of the given type as encoded JSON, serialized from the result of the query if the catalog is
+   * disabled.
+   */
+  public <T extends BookingEntity> EncodedJson getEncodedOfType(Class<T> type, Supplier<List<T>> query) {
+    return encode(type.getName(), current -> current.byType().getOrDefault(type, List.of()), query);
+  }
+
+  /**
+   * Serializes a list of the current snapshot on first use and keeps it with the snapshot, so it is dropped together
+   * with the snapshot once an entity changes.
+   */
+  private EncodedJson encode(String key, Function<Snapshot, List<? extends BookingEntity>> list,
+                             Supplier<? extends List<? extends BookingEntity>> query) {
+    if (!enabled) {
+      return EncodedJson.of(listWriter, query.get(), gzipEnabled);
+    }
+    Snapshot current = getSnapshot();
+    return current.encoded().computeIfAbsent(key, ignored -> EncodedJson.of(listWriter, list.apply(current), gzipEnabled));
+  }
+
+  // runs after the commit, also on threads without a request, so the rebuild gets its own request context
+  @ActivateRequestContext
+  void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) BookingEntityChangedEvent event) {
+    if (enabled) {
+      rebuild();
+      LOG.info("Rebuilt catalog snapshot after entity {} was {}", event.getEntityId(), event.getType());
+    }
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot current = snapshot.get();
+    return current != null ? current : load();
+  }
+
+  private synchronized Snapshot load() {
+    Snapshot current = snapshot.get();
+    return current != null ? current : rebuild();
+  }
+
+  /**
+   * Loads all entities and swaps in the new snapshot. Rebuilds run one at a time and each one starts after the change
+   * that triggered it was committed, so a snapshot that was loaded earlier can never replace a newer one.
+   */
+  private synchronized Snapshot rebuild() {
+    Snapshot loaded = Snapshot.of(bookingEntityRepository.listAll(Sort.by("addedOn").and("id")));
+    snapshot.set(loaded);
+    return loaded;
+  }
+
+  private record Snapshot(List<BookingEntity> all, List<BookingEntity> archived, List<BookingEntity> notArchived,
+                          Map<Class<?>, List<BookingEntity>> byType, Map<String, EncodedJson> encoded) {
+
+    static Snapshot of(List<BookingEntity> entities) {
+      Map<Boolean, List<BookingEntity>> byArchived = entities.stream()
+              .collect(Collectors.partitioningBy(entity -> Boolean.TRUE.equals(entity.getIsArchived()), Collectors.toUnmodifiableList()));
+      Map<Class<?>, List<BookingEntity>> byType = entities.stream()
+              .collect(Collectors.groupingBy(BookingEntity::getClass, Collectors.toUnmodifiableList()));
+      return new Snapshot(List.copyOf(entities), byArchived.get(true), byArchived.get(false), Map.copyOf(byType),
+              new ConcurrentHashMap<>());
+    }
+  }
+}
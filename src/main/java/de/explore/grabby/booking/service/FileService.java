@@ -1,78 +1,265 @@
 package de.explore.grabby.booking.service;
 
-import de.explore.grabby.booking.rest.request.UploadForm;
+import de.explore.grabby.booking.model.StoredFile;
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.model.image.StagedUpload;
+import de.explore.grabby.booking.repository.StoredFileRepository;
+import de.explore.grabby.booking.service.storage.ImageStore;
+import de.explore.grabby.booking.service.storage.ImageStores;
+import de.explore.grabby.booking.service.storage.StoredObject;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Uploads and reads images and files of bookings and lunch. Where a bucket is stored is decided by
+ * {@link ImageStores}.
+ */
 @ApplicationScoped
 public class FileService {
   private static final Logger LOG = LoggerFactory.getLogger(FileService.class);
 
   @Inject
-  S3Client s3;
+  ImageStores imageStores;
 
-  public String uploadImage(String bucket, UploadForm uploadForm) {
-    ensureBucketExists(bucket);
-    String fileName = UUID.randomUUID().toString();
-    createRequestAndUploadImage(bucket, uploadForm, fileName);
-    return fileName;
+  @Inject
+  ImageResizer imageResizer;
+
+  @Inject
+  StoredFileRepository storedFileRepository;
+
+  // streamed images up to this size are kept in memory until their variants are created
+  @ConfigProperty(name = "upload.variant-source.max-bytes", defaultValue = "4194304")
+  int variantSourceMaxBytes;
+
+  /**
+   * Uploads the image together with its scaled variants and returns the filename of the original. Files are stored
+   * under the SHA-256 of their content, so uploading a known file only adds a reference to it.
+   *
+   * @throws jakarta.ws.rs.BadRequestException if the file is no image of a supported format or too large
+   */
+  public String uploadImage(String bucket, Path file) {
+    try (InputStream image = Files.newInputStream(file)) {
+      imageResizer.validate(image);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return upload(bucket, file, true);
+  }
+
+  /**
+   * Uploads a file that is not shown as a thumbnail, like a menu card, without scaled variants and returns its
+   * filename.
+   */
+  public String uploadFile(String bucket, Path file) {
+    return upload(bucket, file, false);
+  }
+
+  /**
+   * Streams the file into the store without staging it on disk and without scaled variants and returns its filename.
+   */
+  public String uploadFile(String bucket, InputStream file) {
+    StagedUpload upload = stage(bucket, file, 0);
+    try {
+      return store(upload, false);
+    } finally {
+      discardImage(upload);
+    }
+  }
+
+  private String upload(String bucket, Path file, boolean withVariants) {
+    ImageStore store = imageStores.forBucket(bucket);
+    store.ensureBucket(bucket);
+    String fileName = ContentHashes.sha256(file);
+    return storeOnce(bucket, fileName, () -> {
+      LOG.info("Uploading file {} to bucket {}", fileName, bucket);
+      store.put(bucket, fileName, file);
+      if (!withVariants) {
+        return false;
+      }
+      try (InputStream image = Files.newInputStream(file)) {
+        return uploadVariants(store, bucket, fileName, image);
+      } catch (IOException e) {
+        LOG.warn("Could not create variants of {}", fileName, e);
+        return false;
+      }
+    });
   }
 
-  private void createRequestAndUploadImage(String bucket, UploadForm uploadForm, String fileName) {
-    PutObjectRequest putObjectRequest = createPutObjectRequest(bucket, fileName);
-    LOG.info("Uploading file {} to bucket {}", bucket, fileName);
-    s3.putObject(putObjectRequest, RequestBody
-            .fromFile(uploadForm.file));
+  /**
+   * Streams the image into the store under a temporary key, because its content hash is only known once the stream
+   * is consumed. The upload has to be finished with {@link #storeImage(StagedUpload)} and then be discarded.
+   */
+  public StagedUpload stageImage(String bucket, InputStream image) {
+    return stage(bucket, image, variantSourceMaxBytes);
   }
 
-  private PutObjectRequest createPutObjectRequest(String bucket, String fileName) {
-    return PutObjectRequest.builder()
-            .bucket(bucket)
-            .key(fileName)
-            .build();
+  private StagedUpload stage(String bucket, InputStream file, int retainedBytes) {
+    ImageStore store = imageStores.forBucket(bucket);
+    store.ensureBucket(bucket);
+    String temporaryName = "upload-" + UUID.randomUUID();
+    LOG.info("Streaming file {} to bucket {}", temporaryName, bucket);
+    RetainingInputStream retainingFile = new RetainingInputStream(file, retainedBytes);
+    DigestInputStream digestingFile = ContentHashes.digesting(retainingFile);
+    store.put(bucket, temporaryName, digestingFile);
+    return new StagedUpload(bucket, temporaryName, ContentHashes.toHex(digestingFile), retainingFile.getRetained());
   }
 
-  private void ensureBucketExists(String bucket) {
-    if (bucketDoesNotExists(bucket)) {
-      CreateBucketRequest createBucketRequest = createCreateBucketRequest(bucket);
-      LOG.info("Creating new bucket {}", bucket);
-      s3.createBucket(createBucketRequest);
+  /**
+   * Moves a staged upload to the key given by its content hash, creates the scaled variants and returns the
+   * filename. The variants are created from the copy kept in memory while streaming, only larger images are read
+   * back from the store.
+   *
+   * @throws jakarta.ws.rs.BadRequestException if the upload is no image of a supported format or too large
+   */
+  public String storeImage(StagedUpload upload) {
+    if (upload.content() != null) {
+      imageResizer.validate(new ByteArrayInputStream(upload.content()));
+    } else {
+      // only the header is read to validate the image
+      try (StoredObject staged = imageStores.forBucket(upload.bucket()).get(upload.bucket(), upload.temporaryName(), null)) {
+        imageResizer.validate(staged.inputStream());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
     }
+    return store(upload, true);
   }
 
-  private CreateBucketRequest createCreateBucketRequest(String bucket) {
-    return CreateBucketRequest.builder()
-            .bucket(bucket)
-            .build();
+  private String store(StagedUpload upload, boolean withVariants) {
+    String bucket = upload.bucket();
+    String fileName = upload.fileName();
+    ImageStore store = imageStores.forBucket(bucket);
+    return storeOnce(bucket, fileName, () -> {
+      store.copy(bucket, upload.temporaryName(), fileName);
+      if (!withVariants) {
+        return false;
+      }
+      if (upload.content() != null) {
+        return uploadVariants(store, bucket, fileName, new ByteArrayInputStream(upload.content()));
+      }
+      try (StoredObject original = store.get(bucket, fileName, null)) {
+        return uploadVariants(store, bucket, fileName, original.inputStream());
+      } catch (IOException e) {
+        LOG.warn("Could not create variants of {}", fileName, e);
+        return false;
+      }
+    });
   }
 
-  private boolean bucketDoesNotExists(String bucketName) {
-    // TODO: refactor this ._.
-    return s3.listBuckets().buckets().stream().filter(b -> b.name().equals(bucketName)).toList().isEmpty();
+  /**
+   * Stores the objects of the file unless it is known and adds a reference to it. A known file may be an orphan that
+   * {@link #deleteOrphans(String)} removes at the same time, adding the reference waits for that, and the objects
+   * are stored again if they are gone afterwards.
+   *
+   * @param putObjects stores the objects and returns whether the scaled variants were stored
+   */
+  private String storeOnce(String bucket, String fileName, BooleanSupplier putObjects) {
+    boolean known = storedFileRepository.exists(bucket, fileName);
+    boolean hasVariants = false;
+    if (known) {
+      LOG.info("File {} is already stored in bucket {}", fileName, bucket);
+    } else {
+      hasVariants = putObjects.getAsBoolean();
+    }
+    storedFileRepository.addReference(bucket, fileName, hasVariants);
+    if (known && !imageStores.forBucket(bucket).exists(bucket, fileName)) {
+      LOG.info("File {} was removed as orphan meanwhile, storing it again", fileName);
+      try {
+        if (putObjects.getAsBoolean()) {
+          storedFileRepository.markVariants(bucket, fileName);
+        }
+      } catch (RuntimeException e) {
+        storedFileRepository.removeReference(bucket, fileName);
+        throw e;
+      }
+    }
+    return fileName;
+  }
+
+  /**
+   * Removes the temporary object of a staged upload.
+   */
+  public void discardImage(StagedUpload upload) {
+    imageStores.forBucket(upload.bucket()).delete(upload.bucket(), upload.temporaryName());
+  }
+
+  /**
+   * Removes a reference to an uploaded file, for example because an image was replaced. Files without references
+   * stay in the bucket until they are cleaned up.
+   */
+  public void releaseImage(String bucket, String fileName) {
+    storedFileRepository.removeReference(bucket, fileName);
   }
 
-  public ResponseInputStream<GetObjectResponse> getImage(String bucket, String fileName) {
-    if (bucketDoesNotExists(bucket)) {
-      // TODO: refactor it
-      throw new BadRequestException("Provided bucket does not exist");
+  /**
+   * Removes the files of the bucket that are no longer referenced together with their variants and returns how many
+   * were removed.
+   */
+  public int deleteOrphans(String bucket) {
+    ImageStore store = imageStores.forBucket(bucket);
+    int deleted = 0;
+    for (StoredFile orphan : storedFileRepository.listOrphans(bucket)) {
+      String fileName = orphan.getFilename();
+      boolean isDeleted = storedFileRepository.deleteOrphan(bucket, fileName, () -> {
+        store.delete(bucket, fileName);
+        for (ImageSize size : ImageSize.values()) {
+          if (size.isScaled()) {
+            store.delete(bucket, size.getKey(fileName));
+          }
+        }
+      });
+      if (isDeleted) {
+        deleted++;
+      }
     }
-    GetObjectRequest getObjectRequest = createGetObjectRequest(bucket, fileName);
-    return s3.getObject(getObjectRequest);
+    return deleted;
   }
 
-  private GetObjectRequest createGetObjectRequest(String bucket, String fileName) {
-    return GetObjectRequest.builder().bucket(bucket).key(fileName).build();
+  /**
+   * Stores the scaled variants of the image and returns whether there were any, files that cannot be scaled have none.
+   */
+  private boolean uploadVariants(ImageStore store, String bucket, String fileName, InputStream original) {
+    Map<ImageSize, byte[]> variants = imageResizer.createVariants(original);
+    variants.forEach((size, variant) -> store.put(bucket, size.getKey(fileName), variant));
+    return !variants.isEmpty();
+  }
+
+  /**
+   * Returns the requested variant of the image, or the original if the variant was never created.
+   */
+  public StoredObject getImage(String bucket, String fileName, ImageSize size) {
+    return getImage(bucket, fileName, size, null);
+  }
+
+  /**
+   * Like {@link #getImage(String, String, ImageSize)}, but only returns the given HTTP byte range (for example
+   * {@code bytes=0-1023}) of the image. A null range returns the whole image.
+   */
+  public StoredObject getImage(String bucket, String fileName, ImageSize size, String range) {
+    ImageStore store = imageStores.forBucket(bucket);
+    if (!size.isScaled()) {
+      return store.get(bucket, fileName, range);
+    }
+    try {
+      return store.get(bucket, size.getKey(fileName), range);
+    } catch (NotFoundException e) {
+      // images that were uploaded before variants existed, or that could not be scaled
+      return store.get(bucket, fileName, range);
+    }
   }
 }
@@ -0,0 +1,228 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.service.storage.StoredObject;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.PathPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache for image bytes in front of the image store. Small images are kept on the heap, larger ones in a local
+ * directory and handed to the HTTP layer as {@link PathPart}, which Vert.x sends with sendfile. Both tiers evict the
+ * least recently used images once their size limit is reached. Image filenames are hashes of their content, so
+ * cached images never become stale.
+ */
+@ApplicationScoped
+public class ImageCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ImageCache.class);
+
+  // the disk tier lives in its own subdirectory of the configured directory, which is the only one cleared at startup
+  private static final String DISK_SUBDIRECTORY = "grabby-image-cache";
+
+  // a response may still be about to send an evicted file, so the files are only deleted after this grace period
+  private static final Duration EVICTED_FILE_GRACE_PERIOD = Duration.ofMinutes(1);
+
+  private final SizeBoundedLru<byte[]> memoryTier = new SizeBoundedLru<>();
+
+  private final SizeBoundedLru<Path> diskTier = new SizeBoundedLru<>();
+
+  private final Queue<EvictedFile> evictedFiles = new ConcurrentLinkedQueue<>();
+
+  @ConfigProperty(name = "image-cache.enabled", defaultValue = "true")
+  boolean enabled;
+
+  @ConfigProperty(name = "image-cache.memory.max-bytes", defaultValue = "16777216")
+  long memoryMaxBytes;
+
+  @ConfigProperty(name = "image-cache.memory.max-entry-bytes", defaultValue = "262144")
+  long memoryMaxEntryBytes;
+
+  @ConfigProperty(name = "image-cache.disk.max-bytes", defaultValue = "536870912")
+  long diskMaxBytes;
+
+  @ConfigProperty(name = "image-cache.disk.directory", defaultValue = "${java.io.tmpdir}")
+  String diskDirectoryName;
+
+  private Path diskDirectory;
+
+  void onStart(@Observes StartupEvent event) throws IOException {
+    if (!enabled) {
+      return;
+    }
+    diskDirectory = Path.of(diskDirectoryName).resolve(DISK_SUBDIRECTORY);
+    // the index of the disk tier only lives in memory, so files of a previous run cannot be used
+    Files.createDirectories(diskDirectory);
+    try (Stream<Path> files = Files.list(diskDirectory)) {
+      for (Path file : files.filter(Files::isRegularFile).toList()) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * Returns the image from the cache as response entity, or loads it with the given loader and caches it.
+   */
+  public Object getImage(String bucket, String filename, Supplier<StoredObject> loader) {
+    if (!enabled) {
+      return loader.get().toResponseEntity();
+    }
+    String key = createKey(bucket, filename);
+
+    byte[] bytes = memoryTier.get(key);
+    if (bytes != null) {
+      return bytes;
+    }
+    PathPart cachedFile = getCachedFile(key);
+    if (cachedFile != null) {
+      return cachedFile;
+    }
+    return load(key, loader.get());
+  }
+
+  private Object load(String key, StoredObject image) {
+    long contentLength = image.contentLength();
+    if (contentLength < 0 || contentLength > diskMaxBytes) {
+      return image.toResponseEntity();
+    }
+    try (image) {
+      if (contentLength <= memoryMaxEntryBytes) {
+        byte[] bytes = image.inputStream().readAllBytes();
+        memoryTier.put(key, bytes, bytes.length, memoryMaxBytes);
+        return bytes;
+      }
+      return storeOnDisk(key, image.inputStream());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Stores the image in the disk tier under a name of its own, so a file is never replaced while it is sent.
+   */
+  private PathPart storeOnDisk(String key, InputStream image) throws IOException {
+    Path file = diskDirectory.resolve(key + "." + UUID.randomUUID());
+    long size = Files.copy(image, file);
+    evict(diskTier.put(key, file, size, diskMaxBytes));
+    return new PathPart(file, 0, size);
+  }
+
+  private PathPart getCachedFile(String key) {
+    Path file = diskTier.get(key);
+    if (file == null) {
+      return null;
+    }
+    try {
+      return new PathPart(file, 0, Files.size(file));
+    } catch (NoSuchFileException e) {
+      diskTier.remove(key);
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Deletes the files that were evicted longer than the grace period ago and remembers the given ones.
+   */
+  private void evict(List<Path> files) {
+    Instant now = Instant.now();
+    files.forEach(file -> evictedFiles.add(new EvictedFile(file, now)));
+    EvictedFile eldest;
+    while ((eldest = evictedFiles.peek()) != null && eldest.evictedAt().plus(EVICTED_FILE_GRACE_PERIOD).isBefore(now)) {
+      if (evictedFiles.remove(eldest)) {
+        deleteQuietly(eldest.file());
+      }
+    }
+  }
+
+  private void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.warn("Could not delete cached image {}", file, e);
+    }
+  }
+
+  private String createKey(String bucket, String filename) {
+    return (bucket + "_" + filename).replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private record EvictedFile(Path file, Instant evictedAt) {
+  }
+
+  /**
+   * Access ordered map whose values are evicted, least recently used first, once their summed size exceeds the limit.
+   */
+  private static final class SizeBoundedLru<V> {
+
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalSize;
+
+    synchronized V get(String key) {
+      Entry<V> entry = entries.get(key);
+      return entry != null ? entry.value() : null;
+    }
+
+    /**
+     * Adds the value and returns all values that were evicted to stay within the maximum size.
+     */
+    synchronized List<V> put(String key, V value, long size, long maxSize) {
+      List<V> evicted = new ArrayList<>();
+      if (size > maxSize) {
+        evicted.add(value);
+        return evicted;
+      }
+      Entry<V> previous = entries.put(key, new Entry<>(value, size));
+      if (previous != null) {
+        totalSize -= previous.size();
+        if (!previous.value().equals(value)) {
+          evicted.add(previous.value());
+        }
+      }
+      totalSize += size;
+      Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+      while (totalSize > maxSize && eldest.hasNext()) {
+        Entry<V> entry = eldest.next().getValue();
+        eldest.remove();
+        totalSize -= entry.size();
+        evicted.add(entry.value());
+      }
+      return evicted;
+    }
+
+    synchronized V remove(String key) {
+      Entry<V> entry = entries.remove(key);
+      if (entry == null) {
+        return null;
+      }
+      totalSize -= entry.size();
+      return entry.value();
+    }
+
+    private record Entry<V>(V value, long size) {
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package de.explore.grabby.booking.service;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded queue of uploaded images that are hashed, resized and stored by a fixed pool of workers, so that upload
+ * requests return as soon as the image is accepted. A request has to reserve a slot before it accepts an image, and
+ * is rejected with 503 if all slots are taken.
+ */
+@ApplicationScoped
+public class ImageProcessingQueue {
+  private static final Logger LOG = LoggerFactory.getLogger(ImageProcessingQueue.class);
+
+  private Semaphore slots;
+
+  private ExecutorService workers;
+
+  @ConfigProperty(name = "image-processing.workers", defaultValue = "2")
+  int workerCount;
+
+  @ConfigProperty(name = "image-processing.queue-capacity", defaultValue = "16")
+  int queueCapacity;
+
+  @PostConstruct
+  void init() {
+    slots = new Semaphore(workerCount + queueCapacity);
+    AtomicInteger threadCount = new AtomicInteger();
+    workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+      Thread thread = new Thread(runnable, "image-processing-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    workers.shutdown();
+    if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+      LOG.warn("Image processing did not finish in time, {} images are dropped", workers.shutdownNow().size());
+    }
+  }
+
+  /**
+   * Reserves a slot for one image. The slot is released once the job passed to {@link #submit(Runnable)} finished,
+   * or by {@link #cancel()} if no job is submitted.
+   */
+  public void reserve() {
+    if (!slots.tryAcquire()) {
+      throw new ServiceUnavailableException("Too many images are being processed, try again later");
+    }
+  }
+
+  public void cancel() {
+    slots.release();
+  }
+
+  /**
+   * Runs the job on a worker. The workers are plain threads, so every job gets its own request context for the
+   * repositories it calls.
+   */
+  public void submit(Runnable job) {
+    workers.execute(() -> {
+      ManagedContext requestContext = Arc.container().requestContext();
+      requestContext.activate();
+      try {
+        job.run();
+      } catch (RuntimeException e) {
+        LOG.error("Image processing failed", e);
+      } finally {
+        requestContext.terminate();
+        slots.release();
+      }
+    });
+  }
+
+  /**
+   * Moves an uploaded file out of the upload directory, which is cleaned up when the request ends.
+   */
+  public Path stage(Path upload) {
+    try {
+      Path stagedFile = Files.createTempFile("grabby-image-", ".upload");
+      return Files.move(upload, stagedFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void discard(Path stagedFile) {
+    try {
+      Files.deleteIfExists(stagedFile);
+    } catch (IOException e) {
+      LOG.warn("Could not delete staged image {}", stagedFile, e);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.image.ImageSize;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Validates uploaded images and creates their scaled variants.
+ */
+@ApplicationScoped
+public class ImageResizer {
+  private static final Logger LOG = LoggerFactory.getLogger(ImageResizer.class);
+
+  // images are decoded completely for scaling, larger images would take too much memory
+  @ConfigProperty(name = "image-processing.max-pixels", defaultValue = "40000000")
+  long maxPixels;
+
+  /**
+   * Checks that the stream contains an image of a supported format that is not larger than the limit, without
+   * decoding its pixels. The stream is not closed.
+   *
+   * @throws BadRequestException if the stream contains no supported image or the image is too large
+   */
+  public void validate(InputStream image) {
+    try (ImageInputStream input = ImageIO.createImageInputStream(image)) {
+      Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+      if (!readers.hasNext()) {
+        throw new BadRequestException("Upload is not an image of a supported format");
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+          throw new BadRequestException("Image has more than " + maxPixels + " pixels");
+        }
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      throw new BadRequestException("Image could not be read", e);
+    }
+  }
+
+  /**
+   * Returns the encoded variants for all scaled {@link ImageSize}s, or an empty map if the stream contains no
+   * readable image. Images are never scaled up. The stream is not closed.
+   */
+  public Map<ImageSize, byte[]> createVariants(InputStream image) {
+    BufferedImage original;
+    try {
+      original = ImageIO.read(image);
+    } catch (IOException e) {
+      LOG.warn("Could not read uploaded image, no variants are created", e);
+      return Map.of();
+    }
+    if (original == null) {
+      LOG.info("Uploaded file has no supported image format, no variants are created");
+      return Map.of();
+    }
+    Map<ImageSize, byte[]> variants = new EnumMap<>(ImageSize.class);
+    for (ImageSize size : ImageSize.values()) {
+      if (size.isScaled()) {
+        variants.put(size, encode(scale(original, size.getMaxDimension())));
+      }
+    }
+    return variants;
+  }
+
+  private BufferedImage scale(BufferedImage original, int maxDimension) {
+    double factor = Math.min(1.0, (double) maxDimension / Math.max(original.getWidth(), original.getHeight()));
+    int targetWidth = Math.max(1, (int) Math.round(original.getWidth() * factor));
+    int targetHeight = Math.max(1, (int) Math.round(original.getHeight() * factor));
+
+    // halving step by step keeps bilinear interpolation from skipping pixels on large reductions
+    BufferedImage scaled = original;
+    do {
+      int width = Math.max(targetWidth, scaled.getWidth() / 2);
+      int height = Math.max(targetHeight, scaled.getHeight() / 2);
+      scaled = draw(scaled, width, height, original.getColorModel().hasAlpha());
+    } while (scaled.getWidth() > targetWidth || scaled.getHeight() > targetHeight);
+    return scaled;
+  }
+
+  private BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+    BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = target.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(source, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return target;
+  }
+
+  private byte[] encode(BufferedImage image) {
+    // png keeps transparency, all other images are stored as the much smaller jpeg
+    String format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(image, format, output);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode image variant", e);
+    }
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,75 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.model.news.NewEntity;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Application wide cache of the entities added in the last days. The result is the same for every user and only
+ * changes at midnight or when an entity is added or changed, so it is kept per calendar day. The cached list holds
+ * immutable copies, the entities themselves are not shared between requests.
+ */
+@ApplicationScoped
+public class NewEntitiesCache {
+
+  private static final String CACHE_NAME = "news-new-entities";
+
+  private final AtomicReference<DailyEntities> cached = new AtomicReference<>();
+
+  private final AtomicLong entityChanges = new AtomicLong();
+
+  private Counter hits;
+
+  private Counter misses;
+
+  @Inject
+  BookingEntityRepository bookingEntityRepository;
+
+  @Inject
+  MeterRegistry registry;
+
+  @PostConstruct
+  void registerMetrics() {
+    hits = registry.counter("cache.gets", "cache", CACHE_NAME, "result", "hit");
+    misses = registry.counter("cache.gets", "cache", CACHE_NAME, "result", "miss");
+  }
+
+  public List<NewEntity> getNewEntities() {
+    LocalDate today = LocalDate.now();
+    DailyEntities current = cached.get();
+    if (current != null && current.day().isEqual(today)) {
+      hits.increment();
+      return current.entities();
+    }
+    misses.increment();
+    long changesBeforeLoad = entityChanges.get();
+    List<NewEntity> entities = bookingEntityRepository.newEntityWasAdded().stream()
+            .map(NewEntity::of)
+            .toList();
+    // an entity committed while loading may be missing, so keep the result uncached in that case
+    if (changesBeforeLoad == entityChanges.get()) {
+      cached.compareAndSet(current, new DailyEntities(today, entities));
+    }
+    return entities;
+  }
+
+  void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) BookingEntityChangedEvent event) {
+    entityChanges.incrementAndGet();
+    cached.set(null);
+  }
+
+  private record DailyEntities(LocalDate day, List<NewEntity> entities) {
+  }
+}
@@ -0,0 +1,109 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.event.BookingChangeType;
+import de.explore.grabby.booking.model.event.BookingChangedEvent;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.model.news.BookingSummary;
+import de.explore.grabby.booking.model.news.News;
+import de.explore.grabby.booking.model.news.NewsType;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes news to the subscribed clients as soon as they appear, instead of letting every client poll all news.
+ * News are derived from committed booking and entity changes and from a job that runs at the start of every day.
+ */
+@ApplicationScoped
+public class NewsBroadcaster {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NewsBroadcaster.class);
+
+  private final BroadcastProcessor<UserNews> processor = BroadcastProcessor.create();
+
+  private final AtomicInteger subscribers = new AtomicInteger();
+
+  @Inject
+  NewsService newsService;
+
+  /**
+   * Returns the current news of the user followed by all news that appear later on. The news of the user are
+   * subscribed before the current news are loaded and buffered until those were sent, so no news get lost in between.
+   * A change in that moment may be sent twice.
+   */
+  public Multi<News> stream(String identifier) {
+    UnicastProcessor<News> laterNews = UnicastProcessor.create();
+    Cancellable subscription = processor
+            .filter(userNews -> userNews.identifier() == null || userNews.identifier().equals(identifier))
+            .map(UserNews::news)
+            .subscribe().with(laterNews::onNext, laterNews::onError, laterNews::onComplete);
+    subscribers.incrementAndGet();
+    List<News> currentNews;
+    try {
+      currentNews = newsService.getAllCurrentNews(identifier);
+    } catch (RuntimeException e) {
+      unsubscribe(subscription);
+      throw e;
+    }
+    return Multi.createBy().concatenating().streams(Multi.createFrom().iterable(currentNews), laterNews)
+            .onTermination().invoke(() -> unsubscribe(subscription));
+  }
+
+  private void unsubscribe(Cancellable subscription) {
+    subscription.cancel();
+    subscribers.decrementAndGet();
+  }
+
+  void onBookingChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) BookingChangedEvent event) {
+    if (subscribers.get() == 0 || (event.getType() != BookingChangeType.CREATED && event.getType() != BookingChangeType.EXTENDED)) {
+      return;
+    }
+    publishBookingNews(List.of(event.getSummary()), LocalDate.now());
+  }
+
+  void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) BookingEntityChangedEvent event) {
+    if (subscribers.get() == 0 || event.getType() != BookingEntityChangeType.ADDED) {
+      return;
+    }
+    publish(new UserNews(null, new News(NewsType.NEWS_NEW_ENTITY, event.getSnapshot())));
+  }
+
+  @Scheduled(cron = "0 0 0 * * ?", identity = "news-day-rollover")
+  void onDayRollover() {
+    if (subscribers.get() == 0) {
+      return;
+    }
+    LocalDate today = LocalDate.now();
+    List<BookingSummary> bookings = newsService.findBookingsWithNewsChangingOn(today);
+    publishBookingNews(bookings, today);
+    LOG.info("Published news of {} bookings for {}", bookings.size(), today);
+  }
+
+  private void publishBookingNews(List<BookingSummary> bookings, LocalDate today) {
+    newsService.getBookingNews(bookings, today)
+            .forEach(news -> publish(new UserNews(news.getBooking().getUserId(), news)));
+  }
+
+  private synchronized void publish(UserNews userNews) {
+    processor.onNext(userNews);
+  }
+
+  /**
+   * News addressed to a single user, or to everyone if the identifier is null.
+   */
+  private record UserNews(String identifier, News news) {
+  }
+}
@@ -1,68 +1,196 @@
 package de.explore.grabby.booking.service;
 
+import de.explore.grabby.booking.model.event.BookingWrittenEvent;
+import de.explore.grabby.booking.model.news.BookingSummary;
 import de.explore.grabby.booking.model.news.News;
 import de.explore.grabby.booking.model.news.NewsType;
 import de.explore.grabby.booking.repository.BookingRepository;
-import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class NewsService {
 
   private static final Logger LOG = LoggerFactory.getLogger(NewsService.class);
+
+  private static final int SOON_OVERDUE_DAYS = 2;
+
+  private final AtomicLong bookingWrites = new AtomicLong();
+
+  // booking news only change at midnight or when a booking changes, so they are kept for the most recent users
+  private Map<String, BookingNewsSnapshot> snapshotsByUser;
+
+  @ConfigProperty(name = "news.snapshots.max-users", defaultValue = "1000")
+  int maxSnapshotUsers;
+
   @Inject
   BookingRepository bookingRepository;
 
   @Inject
-  BookingEntityRepository bookingEntityRepository;
+  NewEntitiesCache newEntitiesCache;
+
+  @PostConstruct
+  void createSnapshots() {
+    snapshotsByUser = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, BookingNewsSnapshot> eldest) {
+        return size() > maxSnapshotUsers;
+      }
+    });
+  }
 
   public List<News> getAllCurrentNews(String identifier) {
+    List<News> bookingNews = getBookingNewsSnapshot(identifier, LocalDate.now());
     List<News> allCurrentNews = new ArrayList<>();
 
-    allCurrentNews.addAll(fetchBookingsStartingToday(identifier));
+    allCurrentNews.addAll(filterByType(bookingNews, NewsType.NEWS_BOOKING_STARTS_TODAY));
     allCurrentNews.addAll(fetchNewEntities());
-    allCurrentNews.addAll(fetchSoonOverdueBookings(identifier));
-    allCurrentNews.addAll(fetchOverdueBookings(identifier));
+    allCurrentNews.addAll(filterByType(bookingNews, NewsType.NEWS_SOON_OVERDUE_BOOKINGS));
+    allCurrentNews.addAll(filterByType(bookingNews, NewsType.NEWS_OVERDUE_BOOKINGS));
 
     LOG.info("Found {} news for user with subject {}", allCurrentNews.size(), identifier);
     return allCurrentNews;
   }
 
+  /**
+   * Turns the given bookings into news, a booking can result in more than one news.
+   */
+  public List<News> getBookingNews(List<BookingSummary> bookings, LocalDate today) {
+    List<News> bookingNews = new ArrayList<>();
+    bookingNews.addAll(fetchBookingsStartingToday(bookings, today));
+    bookingNews.addAll(fetchSoonOverdueBookings(bookings, today));
+    bookingNews.addAll(fetchOverdueBookings(bookings, today));
+    return bookingNews;
+  }
+
+  public List<BookingSummary> findBookingsWithNewsChangingOn(LocalDate day) {
+    return bookingRepository.findAllBookingsWithNewsChangingOn(day, day.plusDays(SOON_OVERDUE_DAYS));
+  }
+
+  /**
+   * Recomputes the booking news of all users that have a snapshot with one query.
+   */
+  @Scheduled(cron = "0 0 0 * * ?", identity = "news-snapshot-rebuild")
+  public void rebuildSnapshots() {
+    Set<String> identifiers;
+    synchronized (snapshotsByUser) {
+      identifiers = Set.copyOf(snapshotsByUser.keySet());
+    }
+    if (identifiers.isEmpty()) {
+      return;
+    }
+    LocalDate today = LocalDate.now();
+    long writesBeforeLoad = bookingWrites.get();
+    Map<String, List<BookingSummary>> bookingsByUser = bookingRepository
+            .findAllNewsworthyBookingsOfUsers(identifiers, today, today.plusDays(SOON_OVERDUE_DAYS))
+            .stream()
+            .collect(Collectors.groupingBy(BookingSummary::getUserId));
+    for (String identifier : identifiers) {
+      List<BookingSummary> bookings = bookingsByUser.getOrDefault(identifier, List.of());
+      cacheIfUnchanged(identifier, new BookingNewsSnapshot(today, getBookingNews(bookings, today)), writesBeforeLoad);
+    }
+    LOG.info("Rebuilt news snapshots of {} users", identifiers.size());
+  }
+
+  /**
+   * Drops the snapshot of the user when one of the bookings was written and again once the transaction completed, so
+   * that a snapshot that was loaded before the commit can not stay cached.
+   */
+  void onBookingWritten(@Observes BookingWrittenEvent event) {
+    invalidateSnapshot(event.getUserId());
+  }
+
+  void onBookingWriteCompleted(@Observes(during = TransactionPhase.AFTER_COMPLETION) BookingWrittenEvent event) {
+    invalidateSnapshot(event.getUserId());
+  }
+
+  private void invalidateSnapshot(String identifier) {
+    bookingWrites.incrementAndGet();
+    snapshotsByUser.remove(identifier);
+  }
+
+  /**
+   * Keeps the snapshot unless a booking was written while it was loaded, the check runs within the compute so a
+   * concurrent invalidation can not slip in between.
+   */
+  private void cacheIfUnchanged(String identifier, BookingNewsSnapshot loaded, long writesBeforeLoad) {
+    snapshotsByUser.compute(identifier, (user, current) -> writesBeforeLoad == bookingWrites.get() ? loaded : current);
+  }
+
+  private List<News> getBookingNewsSnapshot(String identifier, LocalDate today) {
+    BookingNewsSnapshot snapshot = snapshotsByUser.get(identifier);
+    if (snapshot != null && snapshot.day().isEqual(today)) {
+      return snapshot.bookingNews();
+    }
+    long writesBeforeLoad = bookingWrites.get();
+    List<BookingSummary> bookings = bookingRepository.findAllNewsworthyBookingsOfUser(identifier, today, today.plusDays(SOON_OVERDUE_DAYS));
+    List<News> bookingNews = getBookingNews(bookings, today);
+    // a booking committed while loading may be missing, so only keep the snapshot if nothing changed
+    cacheIfUnchanged(identifier, new BookingNewsSnapshot(today, bookingNews), writesBeforeLoad);
+    return bookingNews;
+  }
+
+  private List<News> filterByType(List<News> news, NewsType type) {
+    return news.stream()
+            .filter(singleNews -> singleNews.getType() == type)
+            .toList();
+  }
+
   private List<News> fetchNewEntities() {
-    return bookingEntityRepository.newEntityWasAdded()
+    return newEntitiesCache.getNewEntities()
             .stream()
             .map(entity
                     -> new News(NewsType.NEWS_NEW_ENTITY, entity))
             .toList();
   }
 
-  private List<News> fetchBookingsStartingToday(String identifier) {
-    return bookingRepository.aBookingForUserStartsToday(identifier)
-            .stream()
+  private List<News> fetchBookingsStartingToday(List<BookingSummary> bookings, LocalDate today) {
+    return bookings.stream()
+            .filter(booking -> booking.getStartDate().isEqual(today))
             .map(booking
                     -> new News(NewsType.NEWS_BOOKING_STARTS_TODAY, booking))
             .toList();
   }
 
-  private List<News> fetchSoonOverdueBookings(String identifier) {
-    return bookingRepository.findSoonOverdueBookingsOfUser(identifier)
-            .stream()
+  private List<News> fetchSoonOverdueBookings(List<BookingSummary> bookings, LocalDate today) {
+    return bookings.stream()
+            .filter(booking -> isNotReturned(booking)
+                    && !booking.getEndDate().isBefore(today)
+                    && !booking.getEndDate().isAfter(today.plusDays(SOON_OVERDUE_DAYS)))
             .map(booking
                     -> new News(NewsType.NEWS_SOON_OVERDUE_BOOKINGS, booking))
             .toList();
   }
 
-  private List<News> fetchOverdueBookings(String identifier) {
-    return bookingRepository.listAllOverdueBookings(identifier)
-            .stream()
+  private List<News> fetchOverdueBookings(List<BookingSummary> bookings, LocalDate today) {
+    return bookings.stream()
+            .filter(booking -> isNotReturned(booking) && !booking.getEndDate().isAfter(today))
             .map(booking
                     -> new News(NewsType.NEWS_OVERDUE_BOOKINGS, booking))
             .toList();
   }
-}
\ No newline at end of file
+
+  private boolean isNotReturned(BookingSummary booking) {
+    return !Boolean.TRUE.equals(booking.getIsReturned());
+  }
+
+  private record BookingNewsSnapshot(LocalDate day, List<News> bookingNews) {
+  }
+}
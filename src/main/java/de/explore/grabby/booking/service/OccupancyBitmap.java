@@ -0,0 +1,72 @@
+package de.explore.grabby.booking.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One bit per day of a rolling window starting at {@link #getWindowStart()}. A set bit means that the entity
+ * is booked on that day.
+ */
+public final class OccupancyBitmap {
+
+  public static final int WINDOW_DAYS = 365;
+
+  private final LocalDate windowStart;
+
+  private final long[] words = new long[(WINDOW_DAYS + Long.SIZE - 1) / Long.SIZE];
+
+  private OccupancyBitmap(LocalDate windowStart) {
+    this.windowStart = windowStart;
+  }
+
+  static OccupancyBitmap of(LocalDate windowStart, LocalDate[] startDates, LocalDate[] endDates) {
+    OccupancyBitmap bitmap = new OccupancyBitmap(windowStart);
+    for (int i = 0; i < startDates.length; i++) {
+      bitmap.occupy(startDates[i], endDates[i]);
+    }
+    return bitmap;
+  }
+
+  private void occupy(LocalDate startDate, LocalDate endDate) {
+    long from = Math.max(0, ChronoUnit.DAYS.between(windowStart, startDate));
+    long to = Math.min(WINDOW_DAYS - 1L, ChronoUnit.DAYS.between(windowStart, endDate));
+    for (long day = from; day <= to; day++) {
+      words[(int) (day >>> 6)] |= 1L << day;
+    }
+  }
+
+  public LocalDate getWindowStart() {
+    return windowStart;
+  }
+
+  public LocalDate getWindowEnd() {
+    return windowStart.plusDays(WINDOW_DAYS - 1L);
+  }
+
+  public boolean isOccupied(LocalDate date) {
+    long day = ChronoUnit.DAYS.between(windowStart, date);
+    return day >= 0 && day < WINDOW_DAYS && (words[(int) (day >>> 6)] & (1L << day)) != 0;
+  }
+
+  /**
+   * Returns all occupied days between {@code from} and {@code to} (both inclusive and inside the window).
+   */
+  public List<LocalDate> getOccupiedDays(LocalDate from, LocalDate to) {
+    List<LocalDate> occupiedDays = new ArrayList<>();
+    int first = (int) ChronoUnit.DAYS.between(windowStart, from);
+    int last = (int) ChronoUnit.DAYS.between(windowStart, to);
+    for (int wordIndex = first >>> 6; wordIndex <= last >>> 6; wordIndex++) {
+      long word = words[wordIndex];
+      while (word != 0) {
+        int day = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+        if (day >= first && day <= last) {
+          occupiedDays.add(windowStart.plusDays(day));
+        }
+        word &= word - 1;
+      }
+    }
+    return occupiedDays;
+  }
+}
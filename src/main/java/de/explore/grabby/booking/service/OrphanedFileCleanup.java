@@ -0,0 +1,33 @@
+package de.explore.grabby.booking.service;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes uploaded files that are no longer referenced by an image or a menu card from the buckets.
+ */
+@ApplicationScoped
+public class OrphanedFileCleanup {
+  private static final Logger LOG = LoggerFactory.getLogger(OrphanedFileCleanup.class);
+
+  @Inject
+  FileService fileService;
+
+  @ConfigProperty(name = "bucket.name")
+  String bucket;
+
+  @ConfigProperty(name = "shop.bucket.name")
+  String shopBucket;
+
+  @Scheduled(cron = "0 30 3 * * ?", identity = "orphaned-file-cleanup")
+  void deleteOrphans() {
+    for (String orphanBucket : new String[]{bucket, shopBucket}) {
+      int deleted = fileService.deleteOrphans(orphanBucket);
+      LOG.info("Deleted {} orphaned files from bucket {}", deleted, orphanBucket);
+    }
+  }
+}
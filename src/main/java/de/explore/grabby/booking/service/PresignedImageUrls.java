@@ -0,0 +1,100 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.repository.StoredFileRepository;
+import de.explore.grabby.booking.service.storage.ImageStore;
+import de.explore.grabby.booking.service.storage.ImageStores;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Short-lived presigned S3 URLs for images, so that clients can be redirected to S3 and the image bytes do not pass
+ * through the application. URLs are reused until shortly before they expire. Images of buckets whose store cannot
+ * presign URLs are always streamed.
+ */
+@ApplicationScoped
+public class PresignedImageUrls {
+
+  // bounded, the least recently used urls are evicted first and expired urls are replaced when they are requested
+  private Map<String, PresignedUrl> urls;
+
+  @Inject
+  ImageStores imageStores;
+
+  @Inject
+  StoredFileRepository storedFileRepository;
+
+  @ConfigProperty(name = "image-delivery.redirect.enabled", defaultValue = "false")
+  boolean enabled;
+
+  @ConfigProperty(name = "image-delivery.redirect.url-validity", defaultValue = "10m")
+  Duration urlValidity;
+
+  @ConfigProperty(name = "image-delivery.redirect.renew-before", defaultValue = "2m")
+  Duration renewBefore;
+
+  @ConfigProperty(name = "image-delivery.redirect.max-cached-urls", defaultValue = "10000")
+  int maxCachedUrls;
+
+  @PostConstruct
+  void createUrls() {
+    urls = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PresignedUrl> eldest) {
+        return size() > maxCachedUrls;
+      }
+    });
+  }
+
+  /**
+   * Returns a presigned URL of the image variant, or an empty optional if images are not delivered by redirect.
+   * Whether the variants exist is only looked up if no URL is cached.
+   */
+  public Optional<PresignedUrl> getUrl(String bucket, String filename, ImageSize size) {
+    return getUrl(bucket, filename, size, () -> storedFileRepository.hasVariants(bucket, filename));
+  }
+
+  /**
+   * Like {@link #getUrl(String, String, ImageSize)}, for callers that already know whether the variants exist.
+   */
+  public Optional<PresignedUrl> getUrl(String bucket, String filename, ImageSize size, boolean hasVariants) {
+    return getUrl(bucket, filename, size, () -> hasVariants);
+  }
+
+  private Optional<PresignedUrl> getUrl(String bucket, String filename, ImageSize size, BooleanSupplier hasVariants) {
+    ImageStore store = imageStores.forBucket(bucket);
+    if (!enabled || !store.supportsPresignedUrls()) {
+      return Optional.empty();
+    }
+    Instant now = Instant.now();
+    String cacheKey = bucket + "/" + size.getKey(filename);
+    PresignedUrl url = urls.get(cacheKey);
+    if (url != null && now.isBefore(url.renewAt())) {
+      return Optional.of(url);
+    }
+    // the redirect target has to exist because the fallback of FileService cannot be applied once the client talks to
+    // the store, images that were uploaded before variants existed or could not be scaled are redirected to the original
+    String key = size.isScaled() && hasVariants.getAsBoolean() ? size.getKey(filename) : filename;
+    URI uri = store.presign(bucket, key, urlValidity).orElseThrow();
+    url = new PresignedUrl(uri, now.plus(urlValidity).minus(renewBefore));
+    urls.put(cacheKey, url);
+    return Optional.of(url);
+  }
+
+  /**
+   * A presigned URL that is handed out until {@code renewAt}, which leaves clients enough time to follow it.
+   */
+  public record PresignedUrl(URI uri, Instant renewAt) {
+  }
+}
@@ -0,0 +1,70 @@
+package de.explore.grabby.booking.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Keeps a copy of everything read from the stream as long as it does not exceed the given number of bytes, so a
+ * streamed upload can be processed again without reading it back from the image store.
+ */
+final class RetainingInputStream extends FilterInputStream {
+
+  private final int maxBytes;
+
+  private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+  RetainingInputStream(InputStream input, int maxBytes) {
+    super(input);
+    this.maxBytes = maxBytes;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int value = super.read();
+    if (value != -1) {
+      retain(new byte[]{(byte) value}, 0, 1);
+    }
+    return value;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    int read = super.read(buffer, offset, length);
+    if (read > 0) {
+      retain(buffer, offset, read);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // skipped bytes would be missing in the copy
+    copy = null;
+    return super.skip(n);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Returns everything that was read, or null if it exceeded the limit.
+   */
+  byte[] getRetained() {
+    return copy != null ? copy.toByteArray() : null;
+  }
+
+  private void retain(byte[] buffer, int offset, int length) {
+    if (copy == null) {
+      return;
+    }
+    if (copy.size() + length > maxBytes) {
+      copy = null;
+    } else {
+      copy.write(buffer, offset, length);
+    }
+  }
+}
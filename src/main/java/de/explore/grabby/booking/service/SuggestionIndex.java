@@ -0,0 +1,279 @@
+package de.explore.grabby.booking.service;
+
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.model.suggestion.Suggestion;
+import de.explore.grabby.booking.model.suggestion.SuggestionType;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import de.explore.grabby.lunch.model.event.ShopChangedEvent;
+import de.explore.grabby.lunch.repository.ShopRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index over the names of all booking entities and shops and the console types of the games, which answers
+ * typeahead queries without a database round trip. Words are kept in a sorted array for prefix lookups, trigrams of
+ * the labels allow fuzzy matches for queries with typos. Archived entities and shops are not suggested.
+ * <p>
+ * A committed change of an entity or shop only reloads that row and swaps in a new index built from the rows in
+ * memory, readers keep the index they started with.
+ */
+@ApplicationScoped
+public class SuggestionIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SuggestionIndex.class);
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private static final int MIN_FUZZY_QUERY_LENGTH = 3;
+
+  private static final double MIN_SIMILARITY = 0.5;
+
+  private static final int[] NO_OWNERS = new int[0];
+
+  private final AtomicReference<Index> index = new AtomicReference<>();
+
+  // the loaded rows, only accessed while holding the lock of this instance
+  private final Map<Long, Source> entities = new HashMap<>();
+
+  private final Map<Long, String> shops = new HashMap<>();
+
+  @Inject
+  BookingEntityRepository bookingEntityRepository;
+
+  @Inject
+  ShopRepository shopRepository;
+
+  /**
+   * Returns the best suggestions for the query, prefix matches before fuzzy matches, shorter labels first.
+   */
+  public List<Suggestion> suggest(String query, int limit) {
+    String normalized = normalize(query);
+    if (normalized.isEmpty()) {
+      return List.of();
+    }
+    return getIndex().find(normalized, limit);
+  }
+
+  // the observers run after the commit, also on threads without a request, so the reload gets its own request context
+  @ActivateRequestContext
+  void onEntityChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) BookingEntityChangedEvent event) {
+    update(() -> bookingEntityRepository.findByIdOptional(event.getEntityId())
+            .filter(entity -> !Boolean.TRUE.equals(entity.getIsArchived()))
+            .ifPresentOrElse(entity -> entities.put(entity.getId(), Source.of(entity)),
+                    () -> entities.remove(event.getEntityId())));
+  }
+
+  @ActivateRequestContext
+  void onShopChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ShopChangedEvent event) {
+    update(() -> shopRepository.findByIdOptional(event.getShopId())
+            .filter(shop -> !Boolean.TRUE.equals(shop.getArchived()))
+            .ifPresentOrElse(shop -> shops.put(shop.id, shop.getName()),
+                    () -> shops.remove(event.getShopId())));
+  }
+
+  /**
+   * Applies the change to the loaded rows and rebuilds the index from them. Before the first query nothing is loaded,
+   * the change is then part of the initial load.
+   */
+  private synchronized void update(Runnable change) {
+    if (index.get() == null) {
+      return;
+    }
+    change.run();
+    index.set(Index.of(entities, shops));
+  }
+
+  private Index getIndex() {
+    Index current = index.get();
+    return current != null ? current : load();
+  }
+
+  private synchronized Index load() {
+    Index current = index.get();
+    if (current != null) {
+      return current;
+    }
+    bookingEntityRepository.listAllNotArchived().forEach(entity -> entities.put(entity.getId(), Source.of(entity)));
+    shopRepository.listAll().stream()
+            .filter(shop -> !Boolean.TRUE.equals(shop.getArchived()))
+            .forEach(shop -> shops.put(shop.id, shop.getName()));
+    Index loaded = Index.of(entities, shops);
+    index.set(loaded);
+    LOG.info("Loaded suggestion index with {} entities and {} shops", entities.size(), shops.size());
+    return loaded;
+  }
+
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String withoutDiacritics = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+    return SEPARATORS.matcher(withoutDiacritics.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+  }
+
+  private record Source(String name, String consoleType) {
+
+    static Source of(BookingEntity entity) {
+      return new Source(entity.getName(), entity instanceof Game game ? game.getConsoleType() : null);
+    }
+  }
+
+  private record Candidate(Suggestion suggestion, String label, String[] words) {
+  }
+
+  private record Match(Candidate candidate, double score) {
+  }
+
+  private record WordEntry(String word, int owner) {
+  }
+
+  /**
+   * @param words    all words of all labels, sorted, so the words with a prefix form one range
+   * @param owners   index of the candidate each word belongs to
+   * @param trigrams candidate indexes per trigram, a candidate is listed once per distinct trigram
+   */
+  private record Index(Candidate[] candidates, String[] words, int[] owners, Map<String, int[]> trigrams) {
+
+    static Index of(Map<Long, Source> entities, Map<Long, String> shops) {
+      List<Candidate> candidates = new ArrayList<>();
+      Map<String, String> consoleTypes = new LinkedHashMap<>();
+      entities.forEach((id, source) -> {
+        add(candidates, new Suggestion(SuggestionType.ENTITY, id, source.name()));
+        if (source.consoleType() != null) {
+          consoleTypes.putIfAbsent(normalize(source.consoleType()), source.consoleType());
+        }
+      });
+      consoleTypes.values().forEach(consoleType -> add(candidates, new Suggestion(SuggestionType.CONSOLE, null, consoleType)));
+      shops.forEach((id, name) -> add(candidates, new Suggestion(SuggestionType.SHOP, id, name)));
+
+      List<WordEntry> wordEntries = new ArrayList<>();
+      Map<String, List<Integer>> postings = new HashMap<>();
+      for (int i = 0; i < candidates.size(); i++) {
+        Candidate candidate = candidates.get(i);
+        for (String word : candidate.words()) {
+          wordEntries.add(new WordEntry(word, i));
+        }
+        for (String trigram : trigrams(candidate.label())) {
+          postings.computeIfAbsent(trigram, ignored -> new ArrayList<>()).add(i);
+        }
+      }
+      wordEntries.sort(Comparator.comparing(WordEntry::word));
+      String[] words = new String[wordEntries.size()];
+      int[] owners = new int[wordEntries.size()];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = wordEntries.get(i).word();
+        owners[i] = wordEntries.get(i).owner();
+      }
+      Map<String, int[]> trigrams = new HashMap<>(postings.size() * 2);
+      postings.forEach((trigram, owner) -> trigrams.put(trigram, owner.stream().mapToInt(Integer::intValue).toArray()));
+      return new Index(candidates.toArray(Candidate[]::new), words, owners, trigrams);
+    }
+
+    private static void add(List<Candidate> candidates, Suggestion suggestion) {
+      String label = normalize(suggestion.getLabel());
+      if (!label.isEmpty()) {
+        candidates.add(new Candidate(suggestion, label, label.split(" ")));
+      }
+    }
+
+    List<Suggestion> find(String query, int limit) {
+      String[] queryWords = query.split(" ");
+      Map<Integer, Match> matches = new HashMap<>();
+      // every word of the query must start a word of the label, the label itself starting with the query ranks higher
+      int from = lowerBound(queryWords[0]);
+      for (int i = from; i < words.length && words[i].startsWith(queryWords[0]); i++) {
+        Candidate candidate = candidates[owners[i]];
+        if (matches.containsKey(owners[i]) || !startsAllWords(candidate, queryWords)) {
+          continue;
+        }
+        matches.put(owners[i], new Match(candidate, candidate.label().startsWith(query) ? 3 : 2));
+      }
+      if (matches.size() < limit && query.length() >= MIN_FUZZY_QUERY_LENGTH) {
+        addFuzzyMatches(query, matches);
+      }
+      return matches.values().stream()
+              .sorted(Comparator.comparingDouble(Match::score).reversed()
+                      .thenComparingInt(match -> match.candidate().label().length())
+                      .thenComparing(match -> match.candidate().label()))
+              .limit(limit)
+              .map(match -> match.candidate().suggestion())
+              .toList();
+    }
+
+    /**
+     * Adds the candidates that contain enough of the trigrams of the query. Only the share of the query is compared,
+     * so a typo in one word still matches labels with several words.
+     */
+    private void addFuzzyMatches(String query, Map<Integer, Match> matches) {
+      Set<String> queryTrigrams = trigrams(query);
+      Map<Integer, Integer> shared = new HashMap<>();
+      for (String trigram : queryTrigrams) {
+        for (int owner : trigrams.getOrDefault(trigram, NO_OWNERS)) {
+          shared.merge(owner, 1, Integer::sum);
+        }
+      }
+      shared.forEach((owner, count) -> {
+        Candidate candidate = candidates[owner];
+        double similarity = (double) count / queryTrigrams.size();
+        if (similarity >= MIN_SIMILARITY) {
+          matches.putIfAbsent(owner, new Match(candidate, 1 + similarity));
+        }
+      });
+    }
+
+    private int lowerBound(String prefix) {
+      int position = Arrays.binarySearch(words, prefix);
+      if (position < 0) {
+        return -position - 1;
+      }
+      // equal words may repeat, the range starts at the first of them
+      while (position > 0 && words[position - 1].equals(prefix)) {
+        position--;
+      }
+      return position;
+    }
+
+    private static boolean startsAllWords(Candidate candidate, String[] queryWords) {
+      for (String queryWord : queryWords) {
+        if (Arrays.stream(candidate.words()).noneMatch(word -> word.startsWith(queryWord))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static Set<String> trigrams(String text) {
+      Set<String> trigrams = new HashSet<>();
+      for (String word : text.split(" ")) {
+        String padded = "  " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+          trigrams.add(padded.substring(i, i + 3));
+        }
+      }
+      return trigrams;
+    }
+  }
+}
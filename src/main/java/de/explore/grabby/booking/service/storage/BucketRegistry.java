@@ -0,0 +1,96 @@
+package de.explore.grabby.booking.service.storage;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Bucket;
+import software.amazon.awssdk.services.s3.model.BucketAlreadyOwnedByYouException;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Remembers which buckets exist, so that not every image request has to list all buckets first.
+ * Buckets are listed once at startup if one of the configured buckets is stored in S3, unknown buckets are checked
+ * with a HEAD request.
+ */
+@ApplicationScoped
+public class BucketRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(BucketRegistry.class);
+
+  private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  S3Client s3;
+
+  @Inject
+  ImageStores imageStores;
+
+  @ConfigProperty(name = "bucket.name")
+  String entityBucket;
+
+  @ConfigProperty(name = "shop.bucket.name")
+  String shopBucket;
+
+  void onStart(@Observes StartupEvent event) {
+    // deployments that store every bucket locally do not talk to S3 at all
+    List<String> s3Buckets = Stream.of(entityBucket, shopBucket).filter(imageStores::usesS3).toList();
+    if (s3Buckets.isEmpty()) {
+      LOG.info("No bucket is stored in S3, buckets are not listed");
+      return;
+    }
+    try {
+      s3.listBuckets().buckets().stream()
+              .map(Bucket::name)
+              .filter(s3Buckets::contains)
+              .forEach(knownBuckets::add);
+      LOG.info("Found {} of {} buckets stored in S3", knownBuckets.size(), s3Buckets.size());
+    } catch (SdkException e) {
+      LOG.warn("Could not list buckets at startup, they will be checked on first use", e);
+    }
+  }
+
+  public boolean exists(String bucket) {
+    if (knownBuckets.contains(bucket)) {
+      return true;
+    }
+    try {
+      s3.headBucket(HeadBucketRequest.builder().bucket(bucket).build());
+      knownBuckets.add(bucket);
+      return true;
+    } catch (NoSuchBucketException e) {
+      return false;
+    }
+  }
+
+  public void ensureExists(String bucket) {
+    if (exists(bucket)) {
+      return;
+    }
+    LOG.info("Creating new bucket {}", bucket);
+    try {
+      s3.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+    } catch (BucketAlreadyOwnedByYouException e) {
+      LOG.info("Bucket {} was created concurrently", bucket);
+    }
+    knownBuckets.add(bucket);
+  }
+
+  /**
+   * Forgets a bucket after S3 reported it as missing, so the next access checks it again.
+   */
+  public void forget(String bucket) {
+    knownBuckets.remove(bucket);
+  }
+}
@@ -0,0 +1,51 @@
+package de.explore.grabby.booking.service.storage;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Storage backend for uploaded images and files. Which backend stores a bucket is configured per bucket, see
+ * {@link ImageStores}.
+ */
+public interface ImageStore {
+
+  void ensureBucket(String bucket);
+
+  void put(String bucket, String key, Path file);
+
+  void put(String bucket, String key, byte[] content);
+
+  /**
+   * Stores a stream of unknown length without staging it on disk first.
+   */
+  void put(String bucket, String key, InputStream content);
+
+  /**
+   * Returns the object, or the given HTTP byte range (for example {@code bytes=0-1023}) of it if the range is not
+   * null.
+   *
+   * @throws jakarta.ws.rs.NotFoundException if the object does not exist
+   * @throws jakarta.ws.rs.ClientErrorException with status 416 if the range is outside of the object
+   */
+  StoredObject get(String bucket, String key, String range);
+
+  boolean exists(String bucket, String key);
+
+  void copy(String bucket, String sourceKey, String targetKey);
+
+  void delete(String bucket, String key);
+
+  /**
+   * Returns a URL the client can download the object from directly, if the backend supports it.
+   */
+  default Optional<URI> presign(String bucket, String key, Duration validity) {
+    return Optional.empty();
+  }
+
+  default boolean supportsPresignedUrls() {
+    return false;
+  }
+}
@@ -0,0 +1,55 @@
+package de.explore.grabby.booking.service.storage;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Chooses the storage backend of a bucket. Buckets listed in {@code image-store.local-buckets} or
+ * {@code image-store.s3-buckets} use that backend, all others the default backend.
+ */
+@ApplicationScoped
+public class ImageStores {
+
+  private static final String LOCAL = "local";
+
+  @Inject
+  S3ImageStore s3ImageStore;
+
+  @Inject
+  LocalImageStore localImageStore;
+
+  @ConfigProperty(name = "image-store.default-backend", defaultValue = "s3")
+  String defaultBackend;
+
+  @ConfigProperty(name = "image-store.local-buckets")
+  Optional<List<String>> localBuckets;
+
+  @ConfigProperty(name = "image-store.s3-buckets")
+  Optional<List<String>> s3Buckets;
+
+  void onStart(@Observes StartupEvent event) {
+    if (LOCAL.equalsIgnoreCase(defaultBackend) || localBuckets.map(buckets -> !buckets.isEmpty()).orElse(false)) {
+      localImageStore.checkDirectory();
+    }
+  }
+
+  public ImageStore forBucket(String bucket) {
+    if (localBuckets.map(buckets -> buckets.contains(bucket)).orElse(false)) {
+      return localImageStore;
+    }
+    if (s3Buckets.map(buckets -> buckets.contains(bucket)).orElse(false)) {
+      return s3ImageStore;
+    }
+    return LOCAL.equalsIgnoreCase(defaultBackend) ? localImageStore : s3ImageStore;
+  }
+
+  public boolean usesS3(String bucket) {
+    return forBucket(bucket) == s3ImageStore;
+  }
+}
@@ -0,0 +1,296 @@
+package de.explore.grabby.booking.service.storage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.PathPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores every bucket as a directory on the local filesystem, for single node deployments without S3. Objects are
+ * handed to the HTTP layer as {@link PathPart}, which Vert.x sends with sendfile, so their bytes are not copied
+ * through the heap.
+ */
+@ApplicationScoped
+public class LocalImageStore implements ImageStore {
+  private static final Logger LOG = LoggerFactory.getLogger(LocalImageStore.class);
+
+  private static final Pattern RANGE = Pattern.compile("bytes=(\\d{0,18})-(\\d{0,18})");
+
+  // has no default outside of dev and test, a temporary directory would lose the images
+  @ConfigProperty(name = "image-store.local.directory")
+  Optional<String> directoryName;
+
+  /**
+   * Fails if no directory is configured, which is only required when a bucket is stored locally.
+   */
+  void checkDirectory() {
+    if (directoryName.isEmpty()) {
+      throw new IllegalStateException("image-store.local.directory has to be set to store buckets locally");
+    }
+  }
+
+  @Override
+  public void ensureBucket(String bucket) {
+    try {
+      Files.createDirectories(resolve(bucket));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void put(String bucket, String key, Path file) {
+    write(bucket, key, temporaryFile -> Files.copy(file, temporaryFile, StandardCopyOption.REPLACE_EXISTING));
+  }
+
+  @Override
+  public void put(String bucket, String key, byte[] content) {
+    write(bucket, key, temporaryFile -> Files.write(temporaryFile, content));
+  }
+
+  @Override
+  public void put(String bucket, String key, InputStream content) {
+    write(bucket, key, temporaryFile -> Files.copy(content, temporaryFile, StandardCopyOption.REPLACE_EXISTING));
+  }
+
+  /**
+   * Writes the object to a temporary file first and moves it in place, so readers never see a partial object.
+   */
+  private void write(String bucket, String key, Writer writer) {
+    ensureBucket(bucket);
+    Path file = resolve(bucket, key);
+    Path temporaryFile = file.resolveSibling(key + "." + UUID.randomUUID() + ".tmp");
+    try {
+      writer.write(temporaryFile);
+      Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      deleteQuietly(temporaryFile);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public StoredObject get(String bucket, String key, String range) {
+    if (!Files.isDirectory(resolve(bucket))) {
+      throw new BadRequestException("Provided bucket does not exist");
+    }
+    Path file = resolve(bucket, key);
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      throw new NotFoundException("Could not find file " + key);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      long size = channel.size();
+      if (range == null) {
+        return new LocalStoredObject(file, channel, 0, size, null);
+      }
+      long[] bounds = parseRange(range, size);
+      long length = bounds[1] - bounds[0] + 1;
+      return new LocalStoredObject(file, channel, bounds[0], length, "bytes " + bounds[0] + "-" + bounds[1] + "/" + size);
+    } catch (IOException e) {
+      closeQuietly(channel);
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      closeQuietly(channel);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the first and last position of the range, following the rules of RFC 9110 for a single byte range.
+   */
+  private long[] parseRange(String range, long size) {
+    Matcher matcher = RANGE.matcher(range);
+    if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+      throw new BadRequestException("Invalid range");
+    }
+    long first;
+    long last;
+    if (matcher.group(1).isEmpty()) {
+      long suffixLength = Long.parseLong(matcher.group(2));
+      first = Math.max(0, size - suffixLength);
+      last = size - 1;
+      if (suffixLength == 0) {
+        throw rangeNotSatisfiable();
+      }
+    } else {
+      first = Long.parseLong(matcher.group(1));
+      last = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+    }
+    if (first >= size || first > last) {
+      throw rangeNotSatisfiable();
+    }
+    return new long[]{first, last};
+  }
+
+  private ClientErrorException rangeNotSatisfiable() {
+    return new ClientErrorException("Requested range is outside of the file", Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+  }
+
+  @Override
+  public boolean exists(String bucket, String key) {
+    return Files.isRegularFile(resolve(bucket, key));
+  }
+
+  @Override
+  public void copy(String bucket, String sourceKey, String targetKey) {
+    put(bucket, targetKey, resolve(bucket, sourceKey));
+  }
+
+  @Override
+  public void delete(String bucket, String key) {
+    try {
+      Files.deleteIfExists(resolve(bucket, key));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path resolve(String bucket) {
+    checkDirectory();
+    Path directory = Path.of(directoryName.get()).toAbsolutePath().normalize();
+    Path bucketDirectory = directory.resolve(bucket).normalize();
+    if (!bucketDirectory.getParent().equals(directory)) {
+      throw new BadRequestException("Invalid bucket name");
+    }
+    return bucketDirectory;
+  }
+
+  private Path resolve(String bucket, String key) {
+    Path bucketDirectory = resolve(bucket);
+    Path file = bucketDirectory.resolve(key).normalize();
+    if (!bucketDirectory.equals(file.getParent())) {
+      throw new BadRequestException("Invalid file name");
+    }
+    return file;
+  }
+
+  private void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.warn("Could not delete temporary file {}", file, e);
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.warn("Could not close file channel", e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface Writer {
+    void write(Path temporaryFile) throws IOException;
+  }
+
+  private record LocalStoredObject(Path file, FileChannel channel, long position, long length, String contentRange)
+          implements StoredObject {
+
+    @Override
+    public long contentLength() {
+      return length;
+    }
+
+    /**
+     * Maps the object into memory, which is used to read it within the application, for example to scale it.
+     */
+    @Override
+    public InputStream inputStream() {
+      if (length == 0) {
+        return new ByteArrayInputStream(new byte[0]);
+      }
+      try {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return new InputStream() {
+          @Override
+          public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+          }
+
+          @Override
+          public int read(byte[] bytes, int offset, int count) {
+            if (!buffer.hasRemaining()) {
+              return -1;
+            }
+            int read = Math.min(count, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+          }
+
+          @Override
+          public int available() {
+            return buffer.remaining();
+          }
+
+          @Override
+          public void close() throws IOException {
+            channel.close();
+          }
+        };
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void transferTo(OutputStream output) throws IOException {
+      WritableByteChannel target = Channels.newChannel(output);
+      long transferred = 0;
+      while (transferred < length) {
+        long sent = channel.transferTo(position + transferred, length - transferred, target);
+        // the file was truncated or replaced since its size was read, nothing more will arrive
+        if (sent == 0 && position + transferred >= channel.size()) {
+          throw new EOFException("File ended after " + transferred + " of " + length + " bytes");
+        }
+        transferred += sent;
+      }
+    }
+
+    /**
+     * Returns the file region, Vert.x opens the file again and sends it with sendfile. Objects are only replaced by
+     * an atomic move of a file with the same content, so the region stays valid.
+     */
+    @Override
+    public Object toResponseEntity() {
+      closeQuietly(channel);
+      return new PathPart(file, position, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package de.explore.grabby.booking.service.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams request bodies of unknown length into S3 without staging them on disk. Bodies that fit into one part are
+ * stored with a single put, larger ones with a multipart upload. Every running upload holds one part buffer from a
+ * bounded pool, so the memory used by concurrent uploads is limited to the pool size times the part size.
+ */
+@ApplicationScoped
+public class MultipartUploader {
+  private static final Logger LOG = LoggerFactory.getLogger(MultipartUploader.class);
+
+  /**
+   * S3 rejects multipart uploads whose parts (except the last one) are smaller than 5 MiB.
+   */
+  private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+  private final Queue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+
+  private Semaphore bufferPermits;
+
+  @Inject
+  S3Client s3;
+
+  @ConfigProperty(name = "upload.part-size", defaultValue = "8388608")
+  int partSize;
+
+  @ConfigProperty(name = "upload.buffer-pool.size", defaultValue = "4")
+  int bufferPoolSize;
+
+  @ConfigProperty(name = "upload.buffer-pool.timeout", defaultValue = "30s")
+  Duration bufferPoolTimeout;
+
+  @PostConstruct
+  void init() {
+    partSize = Math.max(MIN_PART_SIZE, partSize);
+    bufferPermits = new Semaphore(bufferPoolSize, true);
+  }
+
+  public void upload(String bucket, String key, InputStream body) {
+    byte[] buffer = acquireBuffer();
+    try {
+      int length = body.readNBytes(buffer, 0, buffer.length);
+      if (length < buffer.length) {
+        s3.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(), toRequestBody(buffer, length));
+        return;
+      }
+      uploadInParts(bucket, key, body, buffer, length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      releaseBuffer(buffer);
+    }
+  }
+
+  private void uploadInParts(String bucket, String key, InputStream body, byte[] buffer, int firstPartLength) throws IOException {
+    String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder().bucket(bucket).key(key).build()).uploadId();
+    try {
+      List<CompletedPart> parts = new ArrayList<>();
+      int length = firstPartLength;
+      while (length > 0) {
+        int partNumber = parts.size() + 1;
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build();
+        String eTag = s3.uploadPart(uploadPartRequest, toRequestBody(buffer, length)).eTag();
+        parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+        length = body.readNBytes(buffer, 0, buffer.length);
+      }
+      s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+              .bucket(bucket)
+              .key(key)
+              .uploadId(uploadId)
+              .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+              .build());
+      LOG.info("Uploaded {} in {} parts", key, parts.size());
+    } catch (IOException | SdkException e) {
+      abort(bucket, key, uploadId);
+      throw e;
+    }
+  }
+
+  private void abort(String bucket, String key, String uploadId) {
+    try {
+      s3.abortMultipartUpload(AbortMultipartUploadRequest.builder().bucket(bucket).key(key).uploadId(uploadId).build());
+    } catch (SdkException e) {
+      LOG.warn("Could not abort multipart upload of {}, its parts stay in bucket {}", key, bucket, e);
+    }
+  }
+
+  private RequestBody toRequestBody(byte[] buffer, int length) {
+    // the byte array stream supports mark and reset, so the SDK can retry the request without copying the buffer
+    return RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length);
+  }
+
+  private byte[] acquireBuffer() {
+    try {
+      if (!bufferPermits.tryAcquire(bufferPoolTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new ServiceUnavailableException("Too many concurrent uploads, try again later");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException("Upload was interrupted");
+    }
+    byte[] buffer = freeBuffers.poll();
+    return buffer != null ? buffer : new byte[partSize];
+  }
+
+  private void releaseBuffer(byte[] buffer) {
+    freeBuffers.offer(buffer);
+    bufferPermits.release();
+  }
+}
@@ -0,0 +1,174 @@
+package de.explore.grabby.booking.service.storage;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+@ApplicationScoped
+public class S3ImageStore implements ImageStore {
+  private static final Logger LOG = LoggerFactory.getLogger(S3ImageStore.class);
+
+  @Inject
+  S3Client s3;
+
+  @Inject
+  S3Presigner presigner;
+
+  @Inject
+  BucketRegistry bucketRegistry;
+
+  @Inject
+  MultipartUploader multipartUploader;
+
+  @Override
+  public void ensureBucket(String bucket) {
+    bucketRegistry.ensureExists(bucket);
+  }
+
+  @Override
+  public void put(String bucket, String key, Path file) {
+    put(bucket, key, RequestBody.fromFile(file));
+  }
+
+  @Override
+  public void put(String bucket, String key, byte[] content) {
+    put(bucket, key, RequestBody.fromBytes(content));
+  }
+
+  private void put(String bucket, String key, RequestBody requestBody) {
+    PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .build();
+    try {
+      s3.putObject(putObjectRequest, requestBody);
+    } catch (NoSuchBucketException e) {
+      // the bucket was removed since it was registered
+      bucketRegistry.forget(bucket);
+      bucketRegistry.ensureExists(bucket);
+      s3.putObject(putObjectRequest, requestBody);
+    }
+  }
+
+  @Override
+  public void put(String bucket, String key, InputStream content) {
+    multipartUploader.upload(bucket, key, content);
+  }
+
+  @Override
+  public StoredObject get(String bucket, String key, String range) {
+    if (!bucketRegistry.exists(bucket)) {
+      throw new BadRequestException("Provided bucket does not exist");
+    }
+    GetObjectRequest getObjectRequest = GetObjectRequest.builder().bucket(bucket).key(key).range(range).build();
+    try {
+      return new S3StoredObject(s3.getObject(getObjectRequest));
+    } catch (NoSuchBucketException e) {
+      bucketRegistry.forget(bucket);
+      throw new BadRequestException("Provided bucket does not exist");
+    } catch (NoSuchKeyException e) {
+      throw new NotFoundException("Could not find file " + key);
+    } catch (S3Exception e) {
+      if (e.statusCode() == Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode()) {
+        throw new ClientErrorException("Requested range is outside of the file", Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE);
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean exists(String bucket, String key) {
+    try {
+      s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+      return true;
+    } catch (NoSuchKeyException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void copy(String bucket, String sourceKey, String targetKey) {
+    s3.copyObject(CopyObjectRequest.builder()
+            .sourceBucket(bucket)
+            .sourceKey(sourceKey)
+            .destinationBucket(bucket)
+            .destinationKey(targetKey)
+            .build());
+  }
+
+  @Override
+  public void delete(String bucket, String key) {
+    s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+  }
+
+  @Override
+  public Optional<URI> presign(String bucket, String key, Duration validity) {
+    GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+            .signatureDuration(validity)
+            .getObjectRequest(GetObjectRequest.builder().bucket(bucket).key(key).build())
+            .build();
+    LOG.debug("Presigning {} in bucket {}", key, bucket);
+    return Optional.of(URI.create(presigner.presignGetObject(presignRequest).url().toString()));
+  }
+
+  @Override
+  public boolean supportsPresignedUrls() {
+    return true;
+  }
+
+  private record S3StoredObject(ResponseInputStream<GetObjectResponse> content) implements StoredObject {
+
+    @Override
+    public long contentLength() {
+      Long contentLength = content.response().contentLength();
+      return contentLength != null ? contentLength : -1;
+    }
+
+    @Override
+    public String contentRange() {
+      return content.response().contentRange();
+    }
+
+    @Override
+    public InputStream inputStream() {
+      return content;
+    }
+
+    @Override
+    public void transferTo(OutputStream output) throws IOException {
+      content.transferTo(output);
+    }
+
+    @Override
+    public void close() throws IOException {
+      content.close();
+    }
+  }
+}
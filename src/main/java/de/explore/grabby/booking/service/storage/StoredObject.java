@@ -0,0 +1,43 @@
+package de.explore.grabby.booking.service.storage;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The content of a stored object, or of a byte range of it. It has to be closed after use.
+ */
+public interface StoredObject extends Closeable {
+
+  /**
+   * Number of bytes that are returned, which is the length of the range for ranged reads.
+   */
+  long contentLength();
+
+  /**
+   * The Content-Range header value of a ranged read, for example {@code bytes 0-99/1234}, null otherwise.
+   */
+  String contentRange();
+
+  InputStream inputStream();
+
+  /**
+   * Writes the content to the output.
+   */
+  void transferTo(OutputStream output) throws IOException;
+
+  /**
+   * Returns the content as response entity, which takes over closing this object. Backends may return an entity the
+   * HTTP layer can send without copying it, by default the content is streamed.
+   */
+  default Object toResponseEntity() {
+    return (StreamingOutput) output -> {
+      try (this) {
+        transferTo(output);
+      }
+    };
+  }
+}
@@ -0,0 +1,18 @@
+package de.explore.grabby.lunch.model.event;
+
+/**
+ * Fired by the shop repository whenever a shop was added or changed.
+ * Observers should listen with {@code TransactionPhase.AFTER_SUCCESS} so they only see committed changes.
+ */
+public class ShopChangedEvent {
+
+  private final long shopId;
+
+  public ShopChangedEvent(long shopId) {
+    this.shopId = shopId;
+  }
+
+  public long getShopId() {
+    return shopId;
+  }
+}
@@ -1,9 +1,11 @@
 package de.explore.grabby.lunch.repository;
 
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.service.FileService;
+import de.explore.grabby.booking.service.storage.StoredObject;
 import de.explore.grabby.lunch.model.MenuCard;
 import de.explore.grabby.lunch.model.Shop;
 import de.explore.grabby.lunch.rest.request.UploadForm;
-import de.explore.grabby.lunch.service.FileService;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -11,6 +13,7 @@ import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.io.InputStream;
 import java.util.Comparator;
 import java.util.List;
 
@@ -37,8 +40,15 @@ public class MenuCardRepository implements PanacheRepository<MenuCard> {
     uploadAndUpdate(menuCardId, fileName);
   }
 
+  /**
+   * Replaces the file of the menu card with the given stream, which is piped into the image store without staging it on disk.
+   */
+  public void uploadAndUpdate(Long menuCardId, InputStream file) {
+    uploadAndUpdate(menuCardId, fileService.uploadFile(bucket, file));
+  }
+
   private String upload(UploadForm menuCard) {
-    return fileService.uploadImage(bucket, menuCard);
+    return fileService.uploadFile(bucket, menuCard.file.toPath());
   }
 
   @Transactional
@@ -54,6 +64,9 @@ public class MenuCardRepository implements PanacheRepository<MenuCard> {
   @Transactional
   public void uploadAndUpdate(Long menuCardId, String fileName) {
     MenuCard toUpdate = findById(menuCardId);
+    if (toUpdate.getFileName() != null) {
+      fileService.releaseImage(bucket, toUpdate.getFileName());
+    }
     toUpdate.setFileName(fileName);
     persist(toUpdate);
   }
@@ -63,4 +76,11 @@ public class MenuCardRepository implements PanacheRepository<MenuCard> {
             .sorted(Comparator.comparingInt(MenuCard::getNumber))
             .toList();
   }
+
+  /**
+   * Returns the uploaded file of the menu card, or only the given HTTP byte range of it if the range is not null.
+   */
+  public StoredObject getFile(MenuCard menuCard, String range) {
+    return fileService.getImage(bucket, menuCard.getFileName(), ImageSize.ORIGINAL, range);
+  }
 }
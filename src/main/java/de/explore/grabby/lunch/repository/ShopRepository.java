@@ -1,15 +1,33 @@
 package de.explore.grabby.lunch.repository;
 
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
 import de.explore.grabby.lunch.model.Shop;
+import de.explore.grabby.lunch.model.event.ShopChangedEvent;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.NotFoundException;
+
+import java.util.UUID;
 
 @ApplicationScoped
 public class ShopRepository implements PanacheRepository<Shop> {
 
+  @Inject
+  Event<ShopChangedEvent> shopChanged;
+
+  @Transactional
+  public void persistShop(Shop shop) {
+    persist(shop);
+    shopChanged.fire(new ShopChangedEvent(shop.id));
+  }
+
   @Transactional
   public Shop put(long id, @Valid @NotNull Shop updatedShop) {
     Shop shopToUpdate = findById(id);
@@ -22,6 +40,49 @@ public class ShopRepository implements PanacheRepository<Shop> {
     shopToUpdate.setArchived(updatedShop.getArchived());
 
     persist(shopToUpdate);
+    shopChanged.fire(new ShopChangedEvent(id));
     return shopToUpdate;
   }
+
+  /**
+   * Marks the image of the shop as {@link ImageStatus#PROCESSING} and returns the id of the new upload. The image
+   * itself is kept until the upload is finished.
+   */
+  @Transactional
+  public String startImageUpload(long id) {
+    Shop shop = findByIdOptional(id).orElseThrow(NotFoundException::new);
+    Image image = shop.getImage() != null ? shop.getImage() : new Image();
+    image.setStatus(ImageStatus.PROCESSING);
+    image.setUpload(UUID.randomUUID().toString());
+    shop.setImage(image);
+    return image.getUpload();
+  }
+
+  /**
+   * Replaces the image of the shop if the upload is still the latest one, and returns the image that is no longer
+   * used: the previous one, or the given one if a later upload superseded it.
+   */
+  @Transactional
+  public Image finishImageUpload(long id, String upload, Image image) {
+    Shop shop = findById(id, LockModeType.PESSIMISTIC_WRITE);
+    // the shop may have been deleted meanwhile
+    Image previousImage = shop != null ? shop.getImage() : null;
+    if (previousImage == null || !upload.equals(previousImage.getUpload())) {
+      return image;
+    }
+    shop.setImage(image);
+    return previousImage;
+  }
+
+  /**
+   * Marks the image of the shop as {@link ImageStatus#FAILED}, unless a later upload superseded the failed one.
+   */
+  @Transactional
+  public void failImageUpload(long id, String upload) {
+    Shop shop = findById(id, LockModeType.PESSIMISTIC_WRITE);
+    Image image = shop != null ? shop.getImage() : null;
+    if (image != null && upload.equals(image.getUpload())) {
+      image.setStatus(ImageStatus.FAILED);
+    }
+  }
 }
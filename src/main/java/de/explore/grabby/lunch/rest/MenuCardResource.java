@@ -1,14 +1,20 @@
 package de.explore.grabby.lunch.rest;
 
+import de.explore.grabby.booking.rest.DownloadResponses;
 import de.explore.grabby.lunch.model.MenuCard;
 import de.explore.grabby.lunch.model.Shop;
 import de.explore.grabby.lunch.repository.MenuCardRepository;
 import de.explore.grabby.lunch.repository.ShopRepository;
 import de.explore.grabby.lunch.rest.request.UploadForm;
+import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
@@ -16,6 +22,7 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +48,33 @@ public class MenuCardResource {
     return menucardRepository.findAllMenuCardsByShop(id);
   }
 
+  @GET
+  @Path("/{menuCardId}/file")
+  @Operation(summary = "Download menuCard", description = "Downloads the uploaded file of a menuCard, supports byte ranges")
+  @APIResponses({
+          @APIResponse(responseCode = "200", description = "Got the file of the menuCard",
+                  content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM)),
+          @APIResponse(responseCode = "206", description = "Got the requested byte range of the file",
+                  content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM)),
+          @APIResponse(responseCode = "304", description = "File was not modified"),
+          @APIResponse(responseCode = "404", description = "Shop or menuCard with the provided ID not found, or menuCard without file"),
+          @APIResponse(responseCode = "416", description = "Requested range is outside of the file")
+  })
+  @Parameter(name = "id", description = "ID of the shop", required = true)
+  @Parameter(name = "menuCardId", description = "ID of the menuCard to download", required = true)
+  public Response getMenuCardFile(@PathParam("id") Long id, @PathParam("menuCardId") Long menuCardId,
+                                  @Context Request request, @Context HttpHeaders headers) {
+    MenuCard menuCard = menucardRepository.findByIdOptional(menuCardId)
+            .filter(card -> card.getShop().id.equals(id))
+            .orElseThrow(() -> new NotFoundException("Could not find menuCard by id " + menuCardId));
+    if (menuCard.getFileName() == null) {
+      throw new NotFoundException("MenuCard " + menuCardId + " has no file");
+    }
+    // the file of a menuCard can be replaced, so it is never immutable
+    return DownloadResponses.create(request, headers, menuCard.getFileName(), false,
+            () -> menucardRepository.getFile(menuCard, null).toResponseEntity(), range -> menucardRepository.getFile(menuCard, range));
+  }
+
   @POST
   @Consumes(MediaType.MULTIPART_FORM_DATA)
   @Operation(summary = "Upload menuCards", description = "Uploads the menuCards for a shop")
@@ -69,6 +103,24 @@ public class MenuCardResource {
     menucardRepository.uploadAndUpdate(menuCardId, menuCard);
   }
 
+  @RolesAllowed("${admin-role}")
+  @PUT
+  @Path("/{menuCardId}")
+  @Consumes({"image/*", "application/pdf", MediaType.APPLICATION_OCTET_STREAM})
+  @Operation(summary = "Stream menuCard", description = "Replaces the file of a menuCard with the request body, without staging it on disk")
+  @APIResponses({
+          @APIResponse(responseCode = "204", description = "MenuCard file replaced successfully"),
+          @APIResponse(responseCode = "404", description = "Shop with the provided ID not found"),
+          @APIResponse(responseCode = "413", description = "File is larger than the request body limit"),
+          @APIResponse(responseCode = "503", description = "Too many concurrent uploads")
+  })
+  @Parameter(name = "id", description = "ID of the shop to be updated", required = true)
+  public void streamAndUpdateMenuCardForShop(@PathParam("id") Long id, @PathParam("menuCardId") Long menuCardId, InputStream file) {
+    ensureShopByIdExists(id);
+    ensureMenuCardWithNumberExists(menuCardId);
+    menucardRepository.uploadAndUpdate(menuCardId, file);
+  }
+
   private void ensureMenuCardWithNumberExists(Long menuCardId) {
     Optional<MenuCard> byIdOptional = menucardRepository.findByIdOptional(menuCardId);
     if (byIdOptional.isEmpty()) {
@@ -1,5 +1,9 @@
 package de.explore.grabby.lunch.rest;
 
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.rest.DownloadResponses;
+import de.explore.grabby.booking.service.PresignedImageUrls.PresignedUrl;
 import de.explore.grabby.lunch.model.Shop;
 import de.explore.grabby.lunch.repository.ShopRepository;
 import de.explore.grabby.lunch.rest.request.UploadForm;
@@ -10,7 +14,10 @@ import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import org.apache.http.HttpStatus;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -20,9 +27,8 @@ import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -74,7 +80,7 @@ public class ShopResource {
   })
   @Parameter(name = "entity", description = "Shop entity to be created", required = true)
   public Response persistEntity(@Valid @NotNull Shop shop) {
-    shopRepository.persist(shop);
+    shopRepository.persistShop(shop);
     return Response.status(Response.Status.CREATED)
             .entity(shop)
             .type(MediaType.APPLICATION_JSON)
@@ -103,17 +109,29 @@ public class ShopResource {
   @APIResponses({
           @APIResponse(responseCode = "200", description = "Got image for entity with provided id",
                   content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM)),
+          @APIResponse(responseCode = "206", description = "Got the requested byte range of the image",
+                  content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM)),
+          @APIResponse(responseCode = "302", description = "Redirect to a presigned S3 URL of the image"),
+          @APIResponse(responseCode = "304", description = "Image was not modified"),
+          @APIResponse(responseCode = "400", description = "Unknown image size"),
           @APIResponse(responseCode = "404", description = "No entity found for provided id")
   })
   @Parameter(name = "id", description = "ID of the booking entity to fetch image", required = true)
+  @Parameter(name = "size", description = "Size of the image (128, 512 or original), defaults to original")
+  @Parameter(name = "version", description = "Filename of the current image, lets the client cache the response forever")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
-  public Response getImageForEntity(@PathParam("id") long id) {
+  public Response getImageForEntity(@PathParam("id") long id, @QueryParam("size") @DefaultValue("original") String size,
+                                    @QueryParam("version") String version, @Context Request request,
+                                    @Context HttpHeaders headers) {
+    ImageSize imageSize = ImageSize.fromValue(size).orElseThrow(() -> new BadRequestException("Unknown image size"));
     ensureShopByIdExists(id);
-    ResponseInputStream<GetObjectResponse> response = shopService.getImageForEntity(id);
-    if (response == null) {
-      response = shopService.getDefaultEntityImage();
+    Image image = shopService.getImageOrDefault(id);
+    Optional<PresignedUrl> url = shopService.getImageUrl(image, imageSize);
+    if (url.isPresent()) {
+      return DownloadResponses.redirect(request, imageSize.getKey(image.getFilename()), url.get().uri(), url.get().renewAt());
     }
-    return Response.ok(response).build();
+    return DownloadResponses.create(request, headers, imageSize.getKey(image.getFilename()), image.getFilename().equals(version),
+            () -> shopService.getImage(image, imageSize), range -> shopService.getImageRange(image, imageSize, range));
   }
 
   @RolesAllowed("${admin-role}")
@@ -121,9 +139,10 @@ public class ShopResource {
   @PUT
   @Operation(summary = "Upload image for a booking entity", description = "Uploads an image for the booking entity with the provided ID")
   @APIResponses({
-          @APIResponse(responseCode = "200", description = "Uploaded image for entity with provided id"),
+          @APIResponse(responseCode = "202", description = "Image was accepted, the image status of the entity shows when it is stored"),
           @APIResponse(responseCode = "400", description = "File is empty"),
-          @APIResponse(responseCode = "404", description = "No entity found for provided id")
+          @APIResponse(responseCode = "404", description = "No entity found for provided id"),
+          @APIResponse(responseCode = "503", description = "Too many images are being processed")
   })
   @Consumes(MediaType.MULTIPART_FORM_DATA)
   @Parameter(name = "id", description = "ID of the booking entity to upload the image for", required = true)
@@ -131,7 +150,25 @@ public class ShopResource {
   public Response uploadImageForEntity(@PathParam("id") long id, @Valid @NotNull UploadForm uploadForm) {
     ensureShopByIdExists(id);
     shopService.uploadImageForEntity(id, uploadForm);
-    return Response.status(HttpStatus.SC_CREATED).build();
+    return Response.status(HttpStatus.SC_ACCEPTED).build();
+  }
+
+  @RolesAllowed("${admin-role}")
+  @Path("/{id}/image")
+  @PUT
+  @Operation(summary = "Stream image for a shop", description = "Uploads the request body as image for the shop with the provided ID, without staging it on disk")
+  @APIResponses({
+          @APIResponse(responseCode = "202", description = "Image was accepted, the image status of the shop shows when it is stored"),
+          @APIResponse(responseCode = "404", description = "No shop found for provided id"),
+          @APIResponse(responseCode = "413", description = "Image is larger than the request body limit"),
+          @APIResponse(responseCode = "503", description = "Too many concurrent uploads")
+  })
+  @Consumes({"image/*", MediaType.APPLICATION_OCTET_STREAM})
+  @Parameter(name = "id", description = "ID of the shop to upload the image for", required = true)
+  public Response streamImageForShop(@PathParam("id") long id, InputStream image) {
+    ensureShopByIdExists(id);
+    shopService.uploadImageForEntity(id, image);
+    return Response.status(HttpStatus.SC_ACCEPTED).build();
   }
 
 
@@ -2,17 +2,28 @@ package de.explore.grabby.lunch.service;
 
 
 import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import de.explore.grabby.booking.model.image.StagedUpload;
+import de.explore.grabby.booking.service.FileService;
+import de.explore.grabby.booking.service.ImageCache;
+import de.explore.grabby.booking.service.ImageProcessingQueue;
+import de.explore.grabby.booking.service.PresignedImageUrls;
+import de.explore.grabby.booking.service.PresignedImageUrls.PresignedUrl;
+import de.explore.grabby.booking.service.storage.StoredObject;
 import de.explore.grabby.lunch.model.Shop;
 import de.explore.grabby.lunch.repository.ShopRepository;
 import de.explore.grabby.lunch.rest.request.UploadForm;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @ApplicationScoped
 public class ShopService {
@@ -24,21 +35,96 @@ public class ShopService {
   @Inject
   FileService fileService;
 
+  @Inject
+  ImageCache imageCache;
+
+  @Inject
+  PresignedImageUrls presignedImageUrls;
+
+  @Inject
+  ImageProcessingQueue imageProcessingQueue;
+
   @Inject
   ShopRepository shopRepository;
 
   @ConfigProperty(name = "bucket.name")
   String bucket;
 
-  @Transactional
+  /**
+   * Accepts the image and stores it in the background. The image status stays {@link ImageStatus#PROCESSING} until
+   * the image was stored, the previous image is served meanwhile.
+   */
   public void uploadImageForEntity(Long id, UploadForm form) {
-    Shop shop = shopRepository.findByIdOptional(id).orElseThrow();
-    String filename = fileService.uploadImage(bucket, form);
-    Image image = createImageObject(filename);
+    imageProcessingQueue.reserve();
+    Path stagedFile;
+    try {
+      stagedFile = imageProcessingQueue.stage(form.file.toPath());
+    } catch (RuntimeException e) {
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    String uploadId;
+    try {
+      uploadId = shopRepository.startImageUpload(id);
+    } catch (RuntimeException e) {
+      imageProcessingQueue.discard(stagedFile);
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    imageProcessingQueue.submit(() -> processImage(id, uploadId, () -> fileService.uploadImage(bucket, stagedFile),
+            () -> imageProcessingQueue.discard(stagedFile)));
+  }
+
+  /**
+   * Like {@link #uploadImageForEntity(Long, UploadForm)}, but streams the image into the image store without staging it on disk.
+   * Only hashing, resizing and storing under the final key happen in the background.
+   */
+  public void uploadImageForEntity(Long id, InputStream imageStream) {
+    imageProcessingQueue.reserve();
+    StagedUpload upload;
+    try {
+      upload = fileService.stageImage(bucket, imageStream);
+    } catch (RuntimeException e) {
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    String uploadId;
+    try {
+      uploadId = shopRepository.startImageUpload(id);
+    } catch (RuntimeException e) {
+      // the staged upload has no stored file yet, so the orphan cleanup would never remove it
+      fileService.discardImage(upload);
+      imageProcessingQueue.cancel();
+      throw e;
+    }
+    imageProcessingQueue.submit(() -> processImage(id, uploadId, () -> fileService.storeImage(upload),
+            () -> fileService.discardImage(upload)));
+  }
 
-    shop.setImage(image);
-    shopRepository.persist(shop);
-    LOG.info("Image was uploaded for shop with id {}", id);
+  /**
+   * Stores the image and applies it, unless a later upload for the same shop was accepted meanwhile. The image that
+   * is no longer used, the previous or the superseded one, is released.
+   */
+  private void processImage(long id, String uploadId, Supplier<String> store, Runnable cleanup) {
+    try {
+      Image image = createImageObject(store.get());
+      image.setStatus(ImageStatus.READY);
+      // only this short transaction touches the database, the upload above runs without one
+      Image unusedImage = shopRepository.finishImageUpload(id, uploadId, image);
+      if (unusedImage != null && unusedImage.getFilename() != null) {
+        fileService.releaseImage(unusedImage.getBucket(), unusedImage.getFilename());
+      }
+      if (unusedImage == image) {
+        LOG.info("Image for shop with id {} was superseded by a later upload", id);
+      } else {
+        LOG.info("Image was uploaded for shop with id {}", id);
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Image for shop with id {} could not be processed", id, e);
+      shopRepository.failImageUpload(id, uploadId);
+    } finally {
+      cleanup.run();
+    }
   }
 
   private Image createImageObject(String filename) {
@@ -48,15 +134,36 @@ public class ShopService {
     return image;
   }
 
-  public ResponseInputStream<GetObjectResponse> getImageForEntity(long id) {
+  /**
+   * Returns the image of the shop or the default image if none was uploaded. No object is fetched from the image store.
+   */
+  public Image getImageOrDefault(long id) {
     Shop shop = shopRepository.findByIdOptional(id).orElseThrow();
-    if (shop.getImage() == null) {
-      return null;
+    if (shop.getImage() == null || shop.getImage().getFilename() == null) {
+      return createImageObject(DEFAULT_SHOP_IMAGE_PNG);
     }
-    return fileService.getImage(shop.getImage().getBucket(), shop.getImage().getFilename());
+    return shop.getImage();
+  }
+
+  /**
+   * Returns the image as response entity, see {@link ImageCache#getImage}.
+   */
+  public Object getImage(Image image, ImageSize size) {
+    return imageCache.getImage(image.getBucket(), size.getKey(image.getFilename()),
+            () -> fileService.getImage(image.getBucket(), image.getFilename(), size));
+  }
+
+  /**
+   * Returns a presigned URL of the image if images are delivered by redirect.
+   */
+  public Optional<PresignedUrl> getImageUrl(Image image, ImageSize size) {
+    return presignedImageUrls.getUrl(image.getBucket(), image.getFilename(), size);
   }
 
-  public ResponseInputStream<GetObjectResponse> getDefaultEntityImage() {
-    return fileService.getImage(bucket, DEFAULT_SHOP_IMAGE_PNG);
+  /**
+   * Returns a byte range of the image. Ranges bypass the image cache.
+   */
+  public StoredObject getImageRange(Image image, ImageSize size, String range) {
+    return fileService.getImage(image.getBucket(), image.getFilename(), size, range);
   }
 }
@@ -0,0 +1,3 @@
+create index if not exists booking_active_user_idx
+   on Booking (user_id)
+   where not isReturned and not isCancelled;
@@ -0,0 +1,9 @@
+-- uploaded files are stored under the sha-256 of their content and shared by all images that reference them
+create table StoredFile (
+    bucket varchar(255) not null,
+    filename varchar(255) not null,
+    reference_count integer not null,
+    primary key (bucket, filename)
+);
+
+create index storedfile_orphan_idx on StoredFile (bucket) where reference_count = 0;
@@ -0,0 +1,8 @@
+alter table if exists BookingEntity
+   add column image_status varchar(255);
+
+alter table if exists Shop
+   add column image_status varchar(255);
+
+update BookingEntity set image_status = 'READY' where filename is not null;
+update Shop set image_status = 'READY' where filename is not null;
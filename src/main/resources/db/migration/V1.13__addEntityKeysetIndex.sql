@@ -0,0 +1,2 @@
+create index if not exists booking_entity_added_on_id_idx
+   on BookingEntity (addedOn, id);
@@ -0,0 +1,9 @@
+-- 'simple' does not stem, because names and descriptions are written in different languages
+alter table if exists BookingEntity
+   add column search_vector tsvector generated always as (
+      setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+      setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+   ) stored;
+
+create index if not exists booking_entity_search_idx
+   on BookingEntity using gin (search_vector);
@@ -0,0 +1,5 @@
+alter table if exists BookingEntity
+   add column image_upload varchar(255);
+
+alter table if exists Shop
+   add column image_upload varchar(255);
@@ -0,0 +1,3 @@
+-- whether the scaled variants of the file were stored, so redirects do not have to look them up in the bucket
+alter table if exists StoredFile
+   add column has_variants boolean not null default false;
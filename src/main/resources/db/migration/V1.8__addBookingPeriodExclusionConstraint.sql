@@ -0,0 +1,9 @@
+create extension if not exists btree_gist;
+
+alter table if exists Booking
+   add column bookingPeriod daterange generated always as (daterange(startDate, endDate, '[]')) stored;
+
+alter table if exists Booking
+   add constraint booking_period_not_overlapping
+   exclude using gist (bookingEntity_id with =, bookingPeriod with &&)
+   where (not isCancelled and not isReturned);
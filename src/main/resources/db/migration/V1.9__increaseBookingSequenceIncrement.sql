@@ -0,0 +1 @@
+alter sequence if exists BOOKING_TABLE_SEQ increment by 50;
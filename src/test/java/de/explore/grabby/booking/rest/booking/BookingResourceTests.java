@@ -7,6 +7,7 @@ import de.explore.grabby.booking.repository.BookingRepository;
 import de.explore.grabby.booking.repository.entity.ConsoleRepository;
 import de.explore.grabby.booking.repository.entity.GameRepository;
 import de.explore.grabby.booking.rest.BookingResource;
+import de.explore.grabby.booking.service.BookingService;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
@@ -20,11 +21,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static io.restassured.RestAssured.given;
 import static org.apache.http.HttpStatus.*;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @TestHTTPEndpoint(BookingResource.class)
 @QuarkusTest
@@ -39,6 +42,9 @@ class BookingResourceTests {
   private Game game;
   private Booking booking7;
 
+  @Inject
+  BookingService bookingService;
+
   @Inject
   public BookingResourceTests(BookingRepository bookingRepository, GameRepository gameRepository, ConsoleRepository consoleRepository) {
     this.bookingRepository = bookingRepository;
@@ -137,7 +143,26 @@ class BookingResourceTests {
           }
   )
   void shouldPersistNewBooking() {
-    Booking newBooking = new Booking("user-2", game, LocalDate.now().plusDays(2), LocalDate.now().plusDays(40));
+    Booking newBooking = new Booking("user-2", game, LocalDate.now().plusDays(11), LocalDate.now().plusDays(40));
+
+    given()
+            .when()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(List.of(newBooking))
+            .post()
+            .then()
+            .statusCode(SC_CREATED);
+  }
+
+  @Test
+  @TestSecurity(user = "Hans Müller")
+  @OidcSecurity(
+          claims = {
+                  @Claim(key = "sub", value = "ghi789")
+          }
+  )
+  void shouldNotPersistOverlappingBooking() {
+    Booking newBooking = new Booking("user-2", game, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3));
 
     given()
             .when()
@@ -145,7 +170,52 @@ class BookingResourceTests {
             .body(List.of(newBooking))
             .post()
             .then()
+            .statusCode(SC_CONFLICT);
+  }
+
+  @Test
+  @TestSecurity(user = "Hans Müller")
+  @OidcSecurity(
+          claims = {
+                  @Claim(key = "sub", value = "ghi789")
+          }
+  )
+  void shouldNotPersistBookingsAboveLimit() {
+    long activeBookings = bookingService.countActiveBookingsOfUser("ghi789");
+    List<Booking> bookingsUpToLimit = new ArrayList<>();
+    for (int i = 0; i < 5 - activeBookings; i++) {
+      bookingsUpToLimit.add(new Booking("ghi789", game, LocalDate.now().plusDays(11 + 2 * i), LocalDate.now().plusDays(12 + 2 * i)));
+    }
+
+    given()
+            .when()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(bookingsUpToLimit)
+            .post()
+            .then()
             .statusCode(SC_CREATED);
+    assertEquals(activeBookings + bookingsUpToLimit.size(), bookingService.countActiveBookingsOfUser("ghi789"));
+
+    Booking bookingAboveLimit = new Booking("ghi789", game, LocalDate.now().plusDays(30), LocalDate.now().plusDays(31));
+    given()
+            .when()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(List.of(bookingAboveLimit))
+            .post()
+            .then()
+            .statusCode(SC_BAD_REQUEST);
+  }
+
+  @Test
+  void shouldCountBookingsPersistedThroughRepository() {
+    long activeBookings = bookingService.countActiveBookingsOfUser("ghi789");
+    createBookingOfUser("ghi789");
+    assertEquals(activeBookings + 1, bookingService.countActiveBookingsOfUser("ghi789"));
+  }
+
+  @Transactional
+  public void createBookingOfUser(String userId) {
+    bookingRepository.persist(new Booking(userId, game, LocalDate.now().plusDays(30), LocalDate.now().plusDays(31)));
   }
 
   @Test
@@ -191,9 +261,27 @@ class BookingResourceTests {
             .statusCode(SC_BAD_REQUEST);
   }
 
+  @Test
+  void shouldExtendBookingWhenOtherBookingWasCancelled() {
+    createAnotherBooking();
+    cancelAnotherBooking();
+    given()
+            .when()
+            .pathParams("id", booking1.getId())
+            .body(2)
+            .put("/{id}/extend")
+            .then()
+            .statusCode(SC_NO_CONTENT);
+  }
+
+  public void cancelAnotherBooking() {
+    Booking anotherBooking = bookingRepository.find("userId", "user-1").firstResult();
+    bookingRepository.cancelById(anotherBooking.getId());
+  }
+
   @Transactional
   public void createAnotherBooking() {
-    Booking booking3 = new Booking("user-1", game, LocalDate.now().plusDays(3), LocalDate.now().plusDays(8));
+    Booking booking3 = new Booking("user-1", game, LocalDate.now().plusDays(3), LocalDate.now().plusDays(4));
     bookingRepository.persist(booking3);
   }
 
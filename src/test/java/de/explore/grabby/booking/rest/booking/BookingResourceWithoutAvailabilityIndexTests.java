@@ -0,0 +1,103 @@
+package de.explore.grabby.booking.rest.booking;
+
+import de.explore.grabby.booking.model.Booking;
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.repository.BookingRepository;
+import de.explore.grabby.booking.repository.entity.GameRepository;
+import de.explore.grabby.booking.rest.BookingResource;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_NO_CONTENT;
+
+/**
+ * Checks extensions against the database query that is used when the availability index is disabled.
+ */
+@TestHTTPEndpoint(BookingResource.class)
+@QuarkusTest
+@TestProfile(BookingResourceWithoutAvailabilityIndexTests.WithoutAvailabilityIndex.class)
+@TestSecurity(authorizationEnabled = false)
+class BookingResourceWithoutAvailabilityIndexTests {
+
+  @Inject
+  BookingRepository bookingRepository;
+
+  @Inject
+  GameRepository gameRepository;
+
+  private Game game;
+  private Booking booking;
+  private Booking nextBooking;
+
+  @BeforeEach
+  @Transactional
+  void setUp() {
+    game = new Game("Let's dance!", "This is a fun dance game", "Nintendo Switch");
+    gameRepository.persist(game);
+    booking = new Booking("ghi789", game, LocalDate.now(), LocalDate.now().plusDays(2));
+    nextBooking = new Booking("user-1", game, LocalDate.now().plusDays(3), LocalDate.now().plusDays(4));
+    bookingRepository.persist(booking, nextBooking);
+  }
+
+  @Test
+  void shouldNotExtendBookingDueOtherBookings() {
+    given()
+            .when()
+            .pathParams("id", booking.getId())
+            .body(2)
+            .put("/{id}/extend")
+            .then()
+            .statusCode(SC_BAD_REQUEST);
+  }
+
+  @Test
+  void shouldExtendBookingWhenOtherBookingWasCancelled() {
+    bookingRepository.cancelById(nextBooking.getId());
+    given()
+            .when()
+            .pathParams("id", booking.getId())
+            .body(2)
+            .put("/{id}/extend")
+            .then()
+            .statusCode(SC_NO_CONTENT);
+  }
+
+  @Test
+  void shouldExtendBookingWhenOtherBookingWasReturned() {
+    bookingRepository.returnById(nextBooking.getId());
+    given()
+            .when()
+            .pathParams("id", booking.getId())
+            .body(2)
+            .put("/{id}/extend")
+            .then()
+            .statusCode(SC_NO_CONTENT);
+  }
+
+  @AfterEach
+  @Transactional
+  void tearDown() {
+    bookingRepository.deleteAll();
+    gameRepository.deleteAll();
+  }
+
+  public static class WithoutAvailabilityIndex implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of("booking.availability-index.enabled", "false");
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package de.explore.grabby.booking.rest.entity;
+
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.apache.http.HttpStatus.SC_NOT_MODIFIED;
+import static org.apache.http.HttpStatus.SC_NO_CONTENT;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Serves the entity lists from the in-memory catalog, which is disabled in the other tests. The catalog is rebuilt
+ * after every committed entity change, so the lists have to reflect changes made through the repository, and the
+ * pre-serialized lists are revalidated by their entity tag.
+ */
+@TestHTTPEndpoint(BookingEntityResource.class)
+@QuarkusTest
+@TestProfile(BookingEntityCatalogTests.WithCatalog.class)
+@TestSecurity(authorizationEnabled = false)
+class BookingEntityCatalogTests {
+  private Game game1;
+  private Game game2;
+
+  @Inject
+  BookingEntityRepository repository;
+
+  @Inject
+  Event<BookingEntityChangedEvent> entityChanged;
+
+  @BeforeEach
+  void setUp() {
+    game1 = new Game("Let's dance!", "This is a fun dance game", "Nintendo Switch");
+    game2 = new Game("Mario Kart 8 Deluxe", "You will hate each other", "Nintendo Switch");
+    repository.persistEntity(game1);
+    repository.persistEntity(game2);
+  }
+
+  @Test
+  void shouldListAddedEntities() {
+    given()
+            .queryParam("status", "unarchived")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("name", containsInAnyOrder(game1.getName(), game2.getName()));
+  }
+
+  @Test
+  void shouldListArchivedEntity() {
+    given()
+            .queryParam("status", "unarchived")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("name", hasItem(game1.getName()));
+
+    given()
+            .when()
+            .pathParams("id", game1.getId())
+            .put("/{id}/archive")
+            .then()
+            .statusCode(SC_NO_CONTENT);
+
+    given()
+            .queryParam("status", "unarchived")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("name", not(hasItem(game1.getName())));
+    given()
+            .queryParam("status", "archived")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("name", containsInAnyOrder(game1.getName()));
+  }
+
+  @Test
+  void shouldListUnarchivedEntity() {
+    repository.archiveEntityById(game2.getId());
+
+    given()
+            .when()
+            .pathParams("id", game2.getId())
+            .put("/{id}/unarchive")
+            .then()
+            .statusCode(SC_NO_CONTENT);
+
+    given()
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("find { it.id == %s }.isArchived".formatted(game2.getId()), is(false));
+  }
+
+  @Test
+  void shouldNotReturnUnmodifiedEntities() {
+    String entityTag = getEntityTag();
+
+    given()
+            .header("If-None-Match", entityTag)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_NOT_MODIFIED)
+            .header("ETag", is(entityTag));
+  }
+
+  @Test
+  void shouldReturnChangedEntitiesWithNewEntityTag() {
+    String entityTag = getEntityTag();
+    repository.archiveEntityById(game1.getId());
+
+    given()
+            .header("If-None-Match", entityTag)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .header("ETag", not(is(entityTag)))
+            .body("find { it.id == %s }.isArchived".formatted(game1.getId()), is(true));
+  }
+
+  @Test
+  void shouldReturnGzipOfCachedEntities() {
+    given()
+            .header("Accept-Encoding", "gzip")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .header("Content-Encoding", is("gzip"))
+            .header("Vary", containsString("Accept-Encoding"))
+            .body("name", containsInAnyOrder(game1.getName(), game2.getName()));
+  }
+
+  private String getEntityTag() {
+    return given()
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .extract()
+            .header("ETag");
+  }
+
+  @AfterEach
+  @Transactional
+  void tearDown() {
+    List<BookingEntity> entities = repository.listAll();
+    repository.deleteAll();
+    // deleting bypasses the repository methods that fire the event, the catalog has to learn about it anyway
+    entities.forEach(entity -> entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, entity)));
+  }
+
+  public static class WithCatalog implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of("entity-catalog.enabled", "true");
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package de.explore.grabby.booking.rest.entity;
+
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import de.explore.grabby.booking.service.storage.ImageStores;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Runs image downloads through the image cache, which is disabled in the other tests.
+ */
+@TestHTTPEndpoint(BookingEntityResource.class)
+@QuarkusTest
+@TestProfile(BookingEntityImageCacheTests.WithImageCache.class)
+@TestSecurity(authorizationEnabled = false)
+class BookingEntityImageCacheTests {
+
+  @Inject
+  BookingEntityRepository repository;
+
+  @Inject
+  ImageStores imageStores;
+
+  @ConfigProperty(name = "bucket.name")
+  String bucket;
+
+  @Test
+  void shouldServeSmallImageFromMemoryAfterItWasDeleted() {
+    shouldServeImageFromCacheAfterItWasDeleted(new byte[]{1, 2, 3, 4});
+  }
+
+  @Test
+  void shouldServeLargeImageFromDiskAfterItWasDeleted() {
+    byte[] content = new byte[4096];
+    Arrays.fill(content, (byte) 7);
+    shouldServeImageFromCacheAfterItWasDeleted(content);
+  }
+
+  private void shouldServeImageFromCacheAfterItWasDeleted(byte[] content) {
+    String filename = "cached-" + UUID.randomUUID();
+    imageStores.forBucket(bucket).put(bucket, filename, content);
+    long id = createGameWithImage(filename);
+
+    assertArrayEquals(content, getImage(id));
+    imageStores.forBucket(bucket).delete(bucket, filename);
+    assertArrayEquals(content, getImage(id));
+  }
+
+  private byte[] getImage(long id) {
+    return given()
+            .when()
+            .pathParams("id", id)
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_OK)
+            .extract().asByteArray();
+  }
+
+  @Transactional
+  public long createGameWithImage(String filename) {
+    Game game = new Game("Mario Kart 8 Deluxe", "You will hate each other", "Nintendo Switch");
+    Image image = new Image();
+    image.setBucket(bucket);
+    image.setFilename(filename);
+    image.setStatus(ImageStatus.READY);
+    game.setImage(image);
+    repository.persist(game);
+    return game.getId();
+  }
+
+  @AfterEach
+  @Transactional
+  void tearDown() {
+    repository.deleteAll();
+  }
+
+  public static class WithImageCache implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      // images above 1 KiB go to the disk tier
+      return Map.of("image-cache.enabled", "true",
+              "image-cache.memory.max-entry-bytes", "1024",
+              "image-cache.disk.directory", "${java.io.tmpdir}/grabby-test");
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package de.explore.grabby.booking.rest.entity;
+
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import de.explore.grabby.booking.repository.StoredFileRepository;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import de.explore.grabby.booking.service.storage.ImageStores;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.apache.http.HttpStatus.SC_MOVED_TEMPORARILY;
+import static org.apache.http.HttpStatus.SC_NOT_MODIFIED;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Delivers images by redirect to presigned S3 URLs, which is disabled in the other tests. Presigning happens without
+ * contacting S3, so the images do not have to exist for the redirect.
+ */
+@TestHTTPEndpoint(BookingEntityResource.class)
+@QuarkusTest
+@TestProfile(BookingEntityImageRedirectTests.WithRedirect.class)
+@TestSecurity(authorizationEnabled = false)
+class BookingEntityImageRedirectTests {
+
+  private static final String LOCAL_BUCKET = "test.local-images";
+
+  @Inject
+  BookingEntityRepository repository;
+
+  @Inject
+  ImageStores imageStores;
+
+  @Inject
+  StoredFileRepository storedFileRepository;
+
+  @ConfigProperty(name = "bucket.name")
+  String bucket;
+
+  @Test
+  void shouldRedirectToPresignedUrl() {
+    String filename = "redirected-" + UUID.randomUUID();
+    long id = createGameWithImage(bucket, filename);
+
+    given()
+            .redirects().follow(false)
+            .when()
+            .pathParams("id", id)
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_MOVED_TEMPORARILY)
+            .header("Location", containsString(bucket))
+            .header("Location", containsString(filename))
+            .header("Location", containsString("X-Amz-Signature"))
+            .header("Cache-Control", containsString("max-age"));
+  }
+
+  @Test
+  void shouldRedirectToVariant() {
+    String filename = "redirected-" + UUID.randomUUID();
+    long id = createGameWithImage(bucket, filename);
+    storedFileRepository.addReference(bucket, filename, true);
+
+    given()
+            .redirects().follow(false)
+            .when()
+            .pathParams("id", id)
+            .queryParam("size", "128")
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_MOVED_TEMPORARILY)
+            .header("Location", containsString(filename + "_128"));
+  }
+
+  @Test
+  void shouldRedirectToOriginalWithoutVariants() {
+    String filename = "redirected-" + UUID.randomUUID();
+    long id = createGameWithImage(bucket, filename);
+    storedFileRepository.addReference(bucket, filename, false);
+
+    given()
+            .redirects().follow(false)
+            .when()
+            .pathParams("id", id)
+            .queryParam("size", "128")
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_MOVED_TEMPORARILY)
+            .header("Location", containsString(filename))
+            .header("Location", not(containsString(filename + "_128")));
+  }
+
+  @Test
+  void shouldGetPresignedUrlsInImageManifest() {
+    String filename = "redirected-" + UUID.randomUUID();
+    long id = createGameWithImage(bucket, filename);
+    storedFileRepository.addReference(bucket, filename, true);
+
+    given()
+            .when()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(List.of(id))
+            .queryParam("size", "128")
+            .post("/images/manifest")
+            .then()
+            .statusCode(SC_OK)
+            .body("[0].variant", is("128"))
+            .body("[0].key", is(filename + "_128"))
+            .body("[0].url", containsString(filename + "_128"))
+            .body("[0].url", containsString("X-Amz-Signature"));
+  }
+
+  @Test
+  void shouldReuseRedirectUrl() {
+    long id = createGameWithImage(bucket, "redirected-" + UUID.randomUUID());
+
+    assertEquals(getRedirectUrl(id), getRedirectUrl(id));
+  }
+
+  @Test
+  void shouldNotRedirectForUnmodifiedImage() {
+    String filename = "redirected-" + UUID.randomUUID();
+    long id = createGameWithImage(bucket, filename);
+
+    given()
+            .redirects().follow(false)
+            .when()
+            .header("If-None-Match", "\"" + filename + "\"")
+            .pathParams("id", id)
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_NOT_MODIFIED);
+  }
+
+  @Test
+  void shouldStreamImageOfBucketWithoutPresignedUrls() {
+    String filename = "streamed-" + UUID.randomUUID();
+    byte[] content = {1, 2, 3, 4};
+    imageStores.forBucket(LOCAL_BUCKET).put(LOCAL_BUCKET, filename, content);
+    long id = createGameWithImage(LOCAL_BUCKET, filename);
+
+    byte[] image = given()
+            .redirects().follow(false)
+            .when()
+            .pathParams("id", id)
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_OK)
+            .extract().asByteArray();
+    assertArrayEquals(content, image);
+  }
+
+  private String getRedirectUrl(long id) {
+    return given()
+            .redirects().follow(false)
+            .when()
+            .pathParams("id", id)
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_MOVED_TEMPORARILY)
+            .extract().header("Location");
+  }
+
+  @Transactional
+  public long createGameWithImage(String imageBucket, String filename) {
+    Game game = new Game("Mario Kart 8 Deluxe", "You will hate each other", "Nintendo Switch");
+    Image image = new Image();
+    image.setBucket(imageBucket);
+    image.setFilename(filename);
+    image.setStatus(ImageStatus.READY);
+    game.setImage(image);
+    repository.persist(game);
+    return game.getId();
+  }
+
+  @AfterEach
+  @Transactional
+  void tearDown() {
+    repository.deleteAll();
+    storedFileRepository.delete("filename like ?1", "redirected-%");
+  }
+
+  public static class WithRedirect implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      // the local store cannot presign urls, images of its buckets are streamed
+      return Map.of("image-delivery.redirect.enabled", "true",
+              "image-store.default-backend", "s3",
+              "image-store.local-buckets", LOCAL_BUCKET);
+    }
+  }
+}
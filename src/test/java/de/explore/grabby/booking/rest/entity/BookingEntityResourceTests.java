@@ -1,32 +1,56 @@
 package de.explore.grabby.booking.rest.entity;
 
-import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.Booking;
+import de.explore.grabby.booking.model.StoredFile;
 import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.model.image.ImageStatus;
+import de.explore.grabby.booking.repository.BookingRepository;
+import de.explore.grabby.booking.repository.StoredFileRepository;
 import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
 import de.explore.grabby.booking.rest.request.UploadForm;
 import de.explore.grabby.booking.service.BookingEntityService;
+import de.explore.grabby.booking.service.FileService;
+import de.explore.grabby.booking.service.storage.ImageStores;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
+import io.restassured.response.Response;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import software.amazon.awssdk.services.s3.S3Client;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static io.restassured.RestAssured.given;
 import static org.apache.http.HttpStatus.*;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 @TestHTTPEndpoint(BookingEntityResource.class)
 @QuarkusTest
@@ -38,12 +62,27 @@ public class BookingEntityResourceTests {
   @Inject
   BookingEntityRepository repository;
 
+  @Inject
+  BookingRepository bookingRepository;
+
   @Inject
   BookingEntityService service;
 
+  @Inject
+  FileService fileService;
+
+  @Inject
+  StoredFileRepository storedFileRepository;
+
+  @Inject
+  ImageStores imageStores;
+
   @Inject
   S3Client s3;
 
+  @ConfigProperty(name = "bucket.name")
+  String bucket;
+
   @BeforeEach
   @Transactional
   void setUp() {
@@ -92,6 +131,81 @@ public class BookingEntityResourceTests {
             .body("size()", is(3));
   }
 
+  @Test
+  void shouldGetFirstPageOfEntities() {
+    given()
+            .queryParam("limit", 2)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("size()", is(2))
+            .header("Link", containsString("rel=\"next\""));
+  }
+
+  @Test
+  void shouldFollowCursorToNextPageOfEntities() {
+    Response firstPage = given()
+            .queryParam("limit", 2)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .extract().response();
+    Matcher cursor = Pattern.compile("cursor=([^&>]+)").matcher(firstPage.header("Link"));
+    assertTrue(cursor.find());
+
+    Response secondPage = given()
+            .urlEncodingEnabled(false)
+            .queryParam("cursor", cursor.group(1))
+            .queryParam("limit", 2)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .header("Link", nullValue())
+            .extract().response();
+
+    List<Integer> ids = new ArrayList<>(firstPage.jsonPath().getList("id", Integer.class));
+    ids.addAll(secondPage.jsonPath().getList("id", Integer.class));
+    // every entity is listed exactly once: no entity is repeated on the second page and none is skipped
+    assertEquals(repository.listAll().stream().map(entity -> (int) entity.getId()).sorted().toList(),
+            ids.stream().sorted().toList());
+  }
+
+  @Test
+  void shouldGetOnlyRequestedFieldsOfEntities() {
+    given()
+            .queryParam("status", "unarchived")
+            .queryParam("fields", "name,type")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("size()", is(2))
+            .body("[0].id", notNullValue())
+            .body("[0].name", notNullValue())
+            .body("[0]", not(hasKey("description")));
+  }
+
+  @Test
+  void shouldNotReturnUnmodifiedEntities() {
+    String entityTag = given()
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .extract()
+            .header("ETag");
+
+    given()
+            .header("If-None-Match", entityTag)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_NOT_MODIFIED);
+  }
+
   @Test
   void shouldGetAllNotArchivedEntities() {
     given()
@@ -135,27 +249,88 @@ public class BookingEntityResourceTests {
   }
 
   @Test
-  @Disabled("Disabled until I found a way to start a dev minio")
-  void shouldUploadImageForGame() {
+  void shouldFindEntitiesByBeginningOfWords() {
+    given()
+            .queryParam("q", "mario ka")
+            .when()
+            .get("/search")
+            .then()
+            .statusCode(SC_OK)
+            .body("size()", is(1))
+            .body("[0].name", is(game2.getName()));
+  }
+
+  @Test
+  void shouldNotSearchWithoutText() {
+    given()
+            .queryParam("q", " ")
+            .when()
+            .get("/search")
+            .then()
+            .statusCode(SC_BAD_REQUEST);
+  }
+
+  @Test
+  void shouldGetAvailabilityOfEntity() {
+    createBookingForGame();
+    given()
+            .when()
+            .pathParams("id", game1.getId())
+            .queryParam("from", LocalDate.now().toString())
+            .queryParam("to", LocalDate.now().plusDays(10).toString())
+            .get("/{id}/availability")
+            .then()
+            .statusCode(SC_OK)
+            .body("entityId", is((int) game1.getId()))
+            .body("bookedDays.size()", is(3));
+  }
+
+  @Test
+  void shouldGetAvailabilityOfAllNotArchivedEntities() {
+    given()
+            .when()
+            .get("/availability")
+            .then()
+            .statusCode(SC_OK)
+            .body("size()", is(2));
+  }
+
+  @Test
+  void shouldNotGetAvailabilityOutsideOfWindow() {
+    given()
+            .when()
+            .pathParams("id", game1.getId())
+            .queryParam("from", LocalDate.now().minusDays(1).toString())
+            .get("/{id}/availability")
+            .then()
+            .statusCode(SC_BAD_REQUEST);
+  }
+
+  @Transactional
+  public void createBookingForGame() {
+    Booking booking = new Booking("abc123", game1, LocalDate.now().plusDays(1), LocalDate.now().plusDays(3));
+    bookingRepository.persist(booking);
+  }
+
+  @Test
+  void shouldUploadImageForGame() throws IOException, InterruptedException {
     assertNull(game1.getImage());
-    String imageString = "This is Mario Kart";
-    InputStream imageStream = new ByteArrayInputStream(imageString.getBytes());
+    byte[] image = createUniqueImageContent();
 
     given()
             .when()
             .contentType(MediaType.MULTIPART_FORM_DATA)
-            .multiPart("file", "mariokart.png", imageStream)
+            .multiPart("file", "mariokart.png", new ByteArrayInputStream(image))
             .pathParams("id", game1.getId())
             .put("/{id}/image")
             .then()
-            .statusCode(SC_CREATED);
+            .statusCode(SC_ACCEPTED);
 
-    BookingEntity newGame = repository.findById(game1.getId());
-    assertNotNull(newGame.getImage());
+    awaitImageStatus(game1.getId(), ImageStatus.READY);
+    assertArrayEquals(image, getImage(game1.getId()));
   }
 
   @Test
-  @Disabled("Disabled until I found a way to start a dev minio")
   void shouldNotUploadImageForGame() {
     given()
             .when()
@@ -167,27 +342,230 @@ public class BookingEntityResourceTests {
   }
 
   @Test
-  @Disabled("Disabled until I found a way to start a dev minio")
-  void shouldReturnImageOfGame() throws IOException {
-    File image = File.createTempFile("tmp", ".png");
+  void shouldReturnImageOfGame() throws IOException, InterruptedException {
+    Path image = createUniqueImage();
+    byte[] content = Files.readAllBytes(image);
     UploadForm uploadForm = new UploadForm();
-    uploadForm.file = image;
+    uploadForm.file = image.toFile();
     service.uploadImageForEntity(game1.getId(), uploadForm);
-    assertNotNull(repository.findById(game1.getId()).getImage());
 
+    awaitImageStatus(game1.getId(), ImageStatus.READY);
+    assertArrayEquals(content, getImage(game1.getId()));
+  }
+
+  @Test
+  void shouldStreamImageForGame() throws IOException, InterruptedException {
+    byte[] image = createUniqueImageContent();
+
+    streamImage(game1.getId(), "image/png", image);
+
+    awaitImageStatus(game1.getId(), ImageStatus.READY);
+    assertArrayEquals(image, getImage(game1.getId()));
+  }
+
+  @Test
+  void shouldFailToProcessUploadThatIsNoImage() throws InterruptedException {
+    streamImage(game1.getId(), MediaType.APPLICATION_OCTET_STREAM, "This is Mario Kart".getBytes());
+
+    awaitImageStatus(game1.getId(), ImageStatus.FAILED);
+  }
+
+  @Test
+  void shouldNotStartImageUploadForMissingEntity() {
+    // an entity deleted after the upload was accepted
+    assertThrows(NotFoundException.class, () -> repository.startImageUpload(-1));
+  }
+
+  @Test
+  void shouldKeepImageOfLatestUpload() throws IOException, InterruptedException {
+    byte[] earlierImage = createUniqueImageContent();
+    byte[] latestImage = createUniqueImageContent();
+
+    streamImage(game1.getId(), "image/png", earlierImage);
+    streamImage(game1.getId(), "image/png", latestImage);
+
+    awaitImageStatus(game1.getId(), ImageStatus.READY);
+    assertArrayEquals(latestImage, getImage(game1.getId()));
+  }
+
+  private void streamImage(long id, String contentType, byte[] image) {
     given()
+            .when()
+            .contentType(contentType)
+            .body(image)
+            .pathParams("id", id)
+            .put("/{id}/image")
+            .then()
+            .statusCode(SC_ACCEPTED);
+  }
+
+  private byte[] getImage(long id) {
+    return given()
+            .when()
+            .pathParams("id", id)
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_OK)
+            .extract().asByteArray();
+  }
+
+  /**
+   * Polls the entity until its image has the status, the image is processed in the background.
+   */
+  private void awaitImageStatus(long id, ImageStatus status) throws InterruptedException {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      String current = given()
+              .when()
+              .pathParams("id", id)
+              .get("/{id}")
+              .then()
+              .statusCode(SC_OK)
+              .extract().path("image.status");
+      if (status.name().equals(current)) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+    fail("Image of entity " + id + " did not become " + status);
+  }
+
+  @Test
+  void shouldReturnScaledVariantOfImage() throws IOException {
+    Path original = Files.createTempFile("original", ".png");
+    ImageIO.write(new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+    setImage(game1.getId(), fileService.uploadImage(bucket, original));
+    Files.delete(original);
+
+    byte[] variant = given()
             .when()
             .pathParams("id", game1.getId())
+            .queryParam("size", "128")
             .get("/{id}/image")
             .then()
             .statusCode(SC_OK)
-            .body(notNullValue());
+            .extract().asByteArray();
+
+    BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(variant));
+    assertNotNull(scaled);
+    assertEquals(128, scaled.getWidth());
+    assertEquals(64, scaled.getHeight());
+  }
+
+  @Transactional
+  public void setImage(long id, String filename) {
+    Image image = new Image();
+    image.setBucket(bucket);
+    image.setFilename(filename);
+    image.setStatus(ImageStatus.READY);
+    repository.findById(id).setImage(image);
+  }
+
+  @Test
+  void shouldStoreIdenticalImageOnce() throws IOException {
+    Path image = createUniqueImage();
+    String fileName = fileService.uploadImage(bucket, image);
+    imageStores.forBucket(bucket).delete(bucket, ImageSize.SMALL.getKey(fileName));
+
+    assertEquals(fileName, fileService.uploadImage(bucket, image));
+    Files.delete(image);
+
+    assertEquals(2, storedFileRepository.findById(new StoredFile.Key(bucket, fileName)).getReferenceCount());
+    // the second upload found the file and did not store it again
+    assertThrows(NotFoundException.class,
+            () -> imageStores.forBucket(bucket).get(bucket, ImageSize.SMALL.getKey(fileName), null));
+  }
+
+  @Test
+  void shouldDeleteOrphanedImage() throws IOException {
+    Path image = createUniqueImage();
+    String fileName = fileService.uploadImage(bucket, image);
+    Files.delete(image);
+    fileService.releaseImage(bucket, fileName);
+
+    fileService.deleteOrphans(bucket);
+
+    assertNull(storedFileRepository.findById(new StoredFile.Key(bucket, fileName)));
+    assertThrows(NotFoundException.class, () -> imageStores.forBucket(bucket).get(bucket, fileName, null));
+    assertThrows(NotFoundException.class,
+            () -> imageStores.forBucket(bucket).get(bucket, ImageSize.SMALL.getKey(fileName), null));
+  }
+
+  private Path createUniqueImage() throws IOException {
+    Path file = Files.createTempFile("unique", ".png");
+    Files.write(file, createUniqueImageContent());
+    return file;
+  }
+
+  private byte[] createUniqueImageContent() throws IOException {
+    BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, UUID.randomUUID().hashCode());
+    image.setRGB(1, 0, UUID.randomUUID().hashCode());
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", content);
+    return content.toByteArray();
+  }
+
+  @Test
+  void shouldNotReturnImageOfUnknownSize() {
+    given()
+            .when()
+            .pathParams("id", game1.getId())
+            .queryParam("size", "64")
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_BAD_REQUEST);
+  }
+
+  @Test
+  void shouldNotReturnUnmodifiedImage() {
+    given()
+            .when()
+            .header("If-None-Match", "\"" + BookingEntityService.DEFAULT_ENTITY_IMAGE_PNG + "_128\"")
+            .pathParams("id", game1.getId())
+            .queryParam("size", "128")
+            .get("/{id}/image")
+            .then()
+            .statusCode(SC_NOT_MODIFIED)
+            .header("ETag", "\"" + BookingEntityService.DEFAULT_ENTITY_IMAGE_PNG + "_128\"")
+            .header("Cache-Control", containsString("no-cache"));
+  }
+
+  @Test
+  void shouldGetImageManifestOfEntities() {
+    given()
+            .when()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(List.of(game2.getId(), game1.getId(), -1L))
+            .queryParam("size", "128")
+            .post("/images/manifest")
+            .then()
+            .statusCode(SC_OK)
+            .body("size()", is(2))
+            .body("[0].entityId", is((int) game2.getId()))
+            .body("[1].entityId", is((int) game1.getId()))
+            .body("[0].variant", is("128"))
+            .body("[0].key", is(BookingEntityService.DEFAULT_ENTITY_IMAGE_PNG + "_128"))
+            .body("[0].etag", is("\"" + BookingEntityService.DEFAULT_ENTITY_IMAGE_PNG + "_128\""))
+            .body("[0].isDefault", is(true))
+            .body("[0].url", containsString("/entities/" + game2.getId() + "/image?size=128&version="));
+  }
+
+  @Test
+  void shouldNotGetImageManifestWithoutIds() {
+    given()
+            .when()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(List.of())
+            .post("/images/manifest")
+            .then()
+            .statusCode(SC_BAD_REQUEST);
   }
 
   @AfterEach
   @Transactional
   void tearDown() {
     // TODO: Start minio as dev service or delete all images after each test
+    bookingRepository.deleteAll();
     repository.deleteAll();
   }
 }
@@ -3,28 +3,52 @@ package de.explore.grabby.booking.rest.news;
 import de.explore.grabby.booking.model.Booking;
 import de.explore.grabby.booking.model.entity.Console;
 import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.entity.embedded.Image;
+import de.explore.grabby.booking.model.image.ImageStatus;
 import de.explore.grabby.booking.repository.BookingRepository;
 import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
 import de.explore.grabby.booking.rest.NewsResource;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
 import io.quarkus.test.security.oidc.Claim;
 import io.quarkus.test.security.oidc.OidcSecurity;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.core.MediaType;
 import org.apache.http.HttpStatus;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 @TestHTTPEndpoint(NewsResource.class)
 public class NewsResourceTests {
+  @TestHTTPEndpoint(NewsResource.class)
+  @TestHTTPResource
+  URL newsUrl;
+
   @Inject
   BookingEntityRepository bookingEntityRepository;
 
@@ -48,6 +72,38 @@ public class NewsResourceTests {
             .body("$", hasSize(4));
   }
 
+  @Test
+  @TestSecurity(user = "Peter Lustig")
+  @OidcSecurity(
+          claims = {
+                  @Claim(key = "sub", value = "peters-identifier")
+          }
+  )
+  void shouldReturnBookingNewsWithBookingAndEntityFields() {
+    setUpAllNews();
+    String booking = "find { it.type == 'NEWS_BOOKING_STARTS_TODAY' }.booking";
+    given()
+            .when()
+            .get()
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .body(booking + ".userId", is("peters-identifier"))
+            .body(booking + ".startDate", is(LocalDate.now().toString()))
+            .body(booking + ".endDate", is(LocalDate.now().plusDays(5).toString()))
+            .body(booking + ".bookingDate", is(LocalDate.now().toString()))
+            .body(booking + ".isCancelled", is(false))
+            .body(booking + ".isReturned", is(false))
+            .body(booking + ".bookingEntity.name", is("Red dead redemption"))
+            .body(booking + ".bookingEntity.description", is("Best western game"))
+            .body(booking + ".bookingEntity.type", is("game"))
+            .body(booking + ".bookingEntity.isArchived", is(false))
+            .body(booking + ".bookingEntity.addedOn", notNullValue())
+            .body(booking + ".bookingEntity.image.filename", is("red-dead-redemption.png"))
+            .body(booking + ".bookingEntity.image.status", is("READY"))
+            // the console type of the entity is not part of booking news
+            .body(booking + ".bookingEntity", not(hasKey("consoleType")));
+  }
+
   @Test
   @TestSecurity(user = "Peter Lustig")
   @OidcSecurity(
@@ -65,15 +121,56 @@ public class NewsResourceTests {
             .body("$", hasSize(2));
   }
 
+  @Test
+  @TestSecurity(user = "Peter Lustig")
+  @OidcSecurity(
+          claims = {
+                  @Claim(key = "sub", value = "peters-identifier")
+          }
+  )
+  void shouldStreamCurrentNewsAndNewEntities() throws Exception {
+    setUpAllNews();
+    HttpRequest request = HttpRequest.newBuilder(URI.create(newsUrl + "/stream"))
+            .header("Accept", MediaType.SERVER_SENT_EVENTS)
+            .build();
+    HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+    try (Stream<String> lines = response.body()) {
+      Iterator<String> events = lines.filter(line -> line.startsWith("data:")).iterator();
+      assertEquals(HttpStatus.SC_OK, response.statusCode());
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+        for (int i = 0; i < 4; i++) {
+          events.next();
+        }
+      });
+      addEntity(new Console("Playstation 5", "The newest console"));
+      String nextEvent = assertTimeoutPreemptively(Duration.ofSeconds(10), events::next);
+      assertTrue(nextEvent.contains("Playstation 5"));
+    }
+  }
+
+  @Transactional
+  public void addEntity(Console console) {
+    bookingEntityRepository.persistEntity(console);
+  }
+
   @Transactional
   public void setUpAllNews() {
     Game game = new Game("Red dead redemption", "Best western game", "XBOX 360");
-    bookingEntityRepository.persist(game);
+    Image image = new Image();
+    image.setFilename("red-dead-redemption.png");
+    image.setBucket("test.images");
+    image.setStatus(ImageStatus.READY);
+    game.setImage(image);
+    Console console = new Console("Xbox 360", "It's an old console");
+    bookingEntityRepository.persistEntity(game);
+    bookingEntityRepository.persistEntity(console);
+    // bookings of one entity may not overlap, so the console is used as well but must not count as new entity
+    bookingEntityRepository.update("addedOn = ?1 where id = ?2", LocalDate.now().minusDays(30), console.getId());
 
     Booking bookingWithStartDateToday = new Booking("peters-identifier", game, LocalDate.now(), LocalDate.now().plusDays(5));
-    Booking soonOverdueBooking = new Booking("peters-identifier", game, LocalDate.now().minusDays(7), LocalDate.now().plusDays(1));
+    Booking soonOverdueBooking = new Booking("peters-identifier", console, LocalDate.now().minusDays(7), LocalDate.now().plusDays(1));
     Booking overdueBooking = new Booking("peters-identifier", game, LocalDate.now().minusDays(10), LocalDate.now().minusDays(5));
-    bookingRepository.persist(bookingWithStartDateToday, soonOverdueBooking, overdueBooking);
+    bookingRepository.create(List.of(bookingWithStartDateToday, soonOverdueBooking, overdueBooking), "peters-identifier");
   }
 
   @Transactional
@@ -82,13 +179,15 @@ public class NewsResourceTests {
     Console console = new Console("Xbox 360", "It's an old console");
     Booking soonOverdueBooking = new Booking("peters-identifier", game, LocalDate.now().minusDays(4), LocalDate.now().plusDays(3));
 
-    bookingEntityRepository.persist(game, console);
+    bookingEntityRepository.persistEntity(game);
+    bookingEntityRepository.persistEntity(console);
   }
 
   @AfterEach
   @Transactional
   void tearDown() {
-    bookingRepository.deleteAll();
+    // deleted one by one, so the news snapshots of the users are dropped
+    bookingRepository.listAll().forEach(bookingRepository::delete);
     bookingEntityRepository.deleteAll();
   }
 }
@@ -0,0 +1,111 @@
+package de.explore.grabby.booking.rest.suggestion;
+
+import de.explore.grabby.booking.model.entity.BookingEntity;
+import de.explore.grabby.booking.model.entity.Game;
+import de.explore.grabby.booking.model.event.BookingEntityChangeType;
+import de.explore.grabby.booking.model.event.BookingEntityChangedEvent;
+import de.explore.grabby.booking.repository.entity.BookingEntityRepository;
+import de.explore.grabby.booking.rest.SuggestionResource;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_OK;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@TestHTTPEndpoint(SuggestionResource.class)
+@QuarkusTest
+@TestSecurity(authorizationEnabled = false)
+public class SuggestionResourceTests {
+  private Game game;
+
+  @Inject
+  BookingEntityRepository repository;
+
+  @Inject
+  Event<BookingEntityChangedEvent> entityChanged;
+
+  @BeforeEach
+  @Transactional
+  void setUp() {
+    game = new Game("Xenoblade Chronicles", "Long journey through a huge world", "Nintendo Switch");
+    // persisted with change event, so the suggestion index picks it up
+    repository.persistEntity(game);
+  }
+
+  @Test
+  void shouldSuggestEntitiesStartingWithQuery() {
+    given()
+            .queryParam("q", "xeno chro")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("[0].type", is("ENTITY"))
+            .body("[0].label", is(game.getName()))
+            .body("id", hasItem((int) game.getId()));
+  }
+
+  @Test
+  void shouldSuggestConsoleTypesAndSimilarNames() {
+    given()
+            .queryParam("q", "xenoblabe")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("label", hasItem(game.getName()));
+    given()
+            .queryParam("q", "nintendo sw")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("label", hasItem("Nintendo Switch"));
+  }
+
+  @Test
+  void shouldNotSuggestArchivedEntities() {
+    repository.archiveEntityById(game.getId());
+
+    given()
+            .queryParam("q", "xeno chro")
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_OK)
+            .body("id", not(hasItem((int) game.getId())));
+  }
+
+  @Test
+  void shouldNotSuggestWithInvalidLimit() {
+    given()
+            .queryParam("q", "xeno")
+            .queryParam("limit", 0)
+            .when()
+            .get()
+            .then()
+            .statusCode(SC_BAD_REQUEST);
+  }
+
+  @AfterEach
+  @Transactional
+  void tearDown() {
+    List<BookingEntity> entities = repository.listAll();
+    repository.deleteAll();
+    // deleting bypasses the repository methods that fire the event, the index has to drop the entities anyway
+    entities.forEach(entity -> entityChanged.fire(new BookingEntityChangedEvent(BookingEntityChangeType.UPDATED, entity)));
+  }
+}
@@ -0,0 +1,209 @@
+package de.explore.grabby.booking.service.storage;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.NotFoundException;
+import org.jboss.resteasy.reactive.PathPart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class LocalImageStoreTests {
+
+  private static final String BUCKET = "images";
+
+  private static final String KEY = "image";
+
+  @TempDir
+  Path directory;
+
+  private LocalImageStore store;
+
+  private byte[] content;
+
+  @BeforeEach
+  void setUp() {
+    store = new LocalImageStore();
+    store.directoryName = Optional.of(directory.toString());
+    content = new byte[100];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    store.put(BUCKET, KEY, content);
+  }
+
+  @Test
+  void shouldGetWholeObject() throws IOException {
+    try (StoredObject object = store.get(BUCKET, KEY, null)) {
+      assertEquals(100, object.contentLength());
+      assertNull(object.contentRange());
+      assertArrayEquals(content, object.inputStream().readAllBytes());
+    }
+  }
+
+  @Test
+  void shouldGetRange() throws IOException {
+    assertRange("bytes=10-19", 10, 19);
+  }
+
+  @Test
+  void shouldGetRangeUntilEndOfObject() throws IOException {
+    assertRange("bytes=90-", 90, 99);
+  }
+
+  @Test
+  void shouldLimitRangeToEndOfObject() throws IOException {
+    assertRange("bytes=90-500", 90, 99);
+  }
+
+  @Test
+  void shouldGetSuffixRange() throws IOException {
+    assertRange("bytes=-5", 95, 99);
+  }
+
+  @Test
+  void shouldLimitSuffixRangeToStartOfObject() throws IOException {
+    assertRange("bytes=-500", 0, 99);
+  }
+
+  @Test
+  void shouldNotGetRangeOutsideOfObject() {
+    assertRangeNotSatisfiable("bytes=100-");
+    assertRangeNotSatisfiable("bytes=100-199");
+    assertRangeNotSatisfiable("bytes=-0");
+    assertRangeNotSatisfiable("bytes=20-10");
+  }
+
+  @Test
+  void shouldNotGetInvalidRange() {
+    assertThrows(BadRequestException.class, () -> store.get(BUCKET, KEY, "bytes=-"));
+    assertThrows(BadRequestException.class, () -> store.get(BUCKET, KEY, "bytes=0-9,20-29"));
+    assertThrows(BadRequestException.class, () -> store.get(BUCKET, KEY, "items=0-9"));
+  }
+
+  @Test
+  void shouldNotGetMissingObject() {
+    assertThrows(NotFoundException.class, () -> store.get(BUCKET, "missing", null));
+  }
+
+  @Test
+  void shouldFailToTransferRangePastEndOfFile() throws IOException {
+    try (StoredObject object = store.get(BUCKET, KEY, "bytes=50-99")) {
+      // truncates the file that is still open, as if it was cut short after its size was read
+      Files.write(directory.resolve(BUCKET).resolve(KEY), Arrays.copyOf(content, 60));
+
+      assertTimeoutPreemptively(Duration.ofSeconds(5),
+              () -> assertThrows(EOFException.class, () -> object.transferTo(OutputStream.nullOutputStream())));
+    }
+  }
+
+  @Test
+  void shouldReturnFileRegionAsResponseEntity() {
+    PathPart part = assertInstanceOf(PathPart.class, store.get(BUCKET, KEY, "bytes=10-19").toResponseEntity());
+
+    assertEquals(directory.resolve(BUCKET).resolve(KEY), part.file);
+    assertEquals(10, part.offset);
+    assertEquals(10, part.count);
+  }
+
+  @Test
+  void shouldNotResolveKeysOutsideOfBucket() {
+    assertThrows(BadRequestException.class, () -> store.put(BUCKET, "../outside", content));
+    assertThrows(BadRequestException.class, () -> store.put(BUCKET, "nested/image", content));
+    assertThrows(BadRequestException.class, () -> store.get(BUCKET, "../other/" + KEY, null));
+    assertThrows(BadRequestException.class, () -> store.delete(BUCKET, "../../etc/passwd"));
+    assertFalse(Files.exists(directory.resolve("outside")));
+  }
+
+  @Test
+  void shouldNotResolveBucketsOutsideOfDirectory() {
+    assertThrows(BadRequestException.class, () -> store.put("..", KEY, content));
+    assertThrows(BadRequestException.class, () -> store.put("images/nested", KEY, content));
+    assertThrows(BadRequestException.class, () -> store.get("../" + directory.getFileName(), KEY, null));
+  }
+
+  @Test
+  void shouldKeepPreviousObjectIfWriteFails() throws IOException {
+    assertThrows(UncheckedIOException.class, () -> store.put(BUCKET, KEY, failingStream()));
+
+    try (StoredObject object = store.get(BUCKET, KEY, null)) {
+      assertArrayEquals(content, object.inputStream().readAllBytes());
+    }
+    assertBucketContainsOnly(KEY);
+  }
+
+  @Test
+  void shouldNotStoreObjectIfWriteFails() {
+    assertThrows(UncheckedIOException.class, () -> store.put(BUCKET, "new", failingStream()));
+
+    assertFalse(store.exists(BUCKET, "new"));
+    assertBucketContainsOnly(KEY);
+  }
+
+  @Test
+  void shouldFailWithoutDirectory() {
+    store.directoryName = Optional.empty();
+
+    assertThrows(IllegalStateException.class, () -> store.get(BUCKET, KEY, null));
+  }
+
+  private void assertRange(String range, long first, long last) throws IOException {
+    try (StoredObject object = store.get(BUCKET, KEY, range)) {
+      assertEquals(last - first + 1, object.contentLength());
+      assertEquals("bytes " + first + "-" + last + "/100", object.contentRange());
+      assertArrayEquals(Arrays.copyOfRange(content, (int) first, (int) last + 1), object.inputStream().readAllBytes());
+    }
+  }
+
+  private void assertRangeNotSatisfiable(String range) {
+    ClientErrorException exception = assertThrows(ClientErrorException.class, () -> store.get(BUCKET, KEY, range));
+    assertEquals(416, exception.getResponse().getStatus());
+  }
+
+  private void assertBucketContainsOnly(String key) {
+    // no temporary file of the failed write is left behind
+    try (Stream<Path> files = Files.list(directory.resolve(BUCKET))) {
+      assertEquals(List.of(key), files.map(file -> file.getFileName().toString()).toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns some bytes and then fails, like an upload whose connection breaks.
+   */
+  private InputStream failingStream() {
+    return new InputStream() {
+      private int read;
+
+      @Override
+      public int read() throws IOException {
+        if (read++ < 10) {
+          return 1;
+        }
+        throw new IOException("Connection reset");
+      }
+    };
+  }
+}
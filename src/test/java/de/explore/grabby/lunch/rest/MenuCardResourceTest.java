@@ -1,5 +1,8 @@
 package de.explore.grabby.lunch.rest;
 
+import de.explore.grabby.booking.model.image.ImageSize;
+import de.explore.grabby.booking.service.storage.ImageStores;
+import de.explore.grabby.booking.service.storage.StoredObject;
 import de.explore.grabby.lunch.model.MenuCard;
 import de.explore.grabby.lunch.model.Shop;
 import de.explore.grabby.lunch.repository.MenuCardRepository;
@@ -9,20 +12,30 @@ import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.security.TestSecurity;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.http.HttpStatus;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @QuarkusTest
 @TestHTTPEndpoint(MenuCardResource.class)
@@ -34,6 +47,12 @@ class MenuCardResourceTest {
   @Inject
   ShopRepository shopRepository;
 
+  @Inject
+  ImageStores imageStores;
+
+  @ConfigProperty(name = "shop.bucket.name")
+  String bucket;
+
   private Shop amici;
   private Shop songque;
   private MenuCard menuCardSongQue;
@@ -79,6 +98,170 @@ class MenuCardResourceTest {
             .body("$", hasSize(2));
   }
 
+  @Test
+  void shouldNotGetFileOfMenuCardOfOtherShop() {
+    given()
+            .pathParams("id", amici.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .header("Range", "bytes=0-99")
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_NOT_FOUND);
+  }
+
+  @Test
+  void shouldGetFileOfMenuCard() {
+    byte[] content = storeFileOfMenuCardSongQue();
+
+    byte[] file = given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .header("ETag", is(getEntityTagOfMenuCardSongQue()))
+            .header("Accept-Ranges", is("bytes"))
+            .extract().asByteArray();
+    assertArrayEquals(content, file);
+  }
+
+  @Test
+  void shouldGetRangeOfFileOfMenuCard() {
+    byte[] content = storeFileOfMenuCardSongQue();
+
+    byte[] part = given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .header("Range", "bytes=10-19")
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_PARTIAL_CONTENT)
+            .header("Content-Range", is("bytes 10-19/" + content.length))
+            .header("Content-Length", is("10"))
+            .extract().asByteArray();
+    assertArrayEquals(Arrays.copyOfRange(content, 10, 20), part);
+  }
+
+  @Test
+  void shouldGetRangeOfFileOfMenuCardIfItIsUnchanged() {
+    storeFileOfMenuCardSongQue();
+
+    given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .header("Range", "bytes=-5")
+            .header("If-Range", getEntityTagOfMenuCardSongQue())
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_PARTIAL_CONTENT)
+            .header("Content-Range", is("bytes 95-99/100"));
+  }
+
+  @Test
+  void shouldGetWholeFileOfMenuCardIfItChanged() {
+    byte[] content = storeFileOfMenuCardSongQue();
+
+    byte[] file = given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .header("Range", "bytes=10-19")
+            .header("If-Range", "\"" + UUID.randomUUID() + "\"")
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .extract().asByteArray();
+    assertArrayEquals(content, file);
+  }
+
+  @Test
+  void shouldNotReturnUnmodifiedFileOfMenuCard() {
+    storeFileOfMenuCardSongQue();
+
+    given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .header("If-None-Match", getEntityTagOfMenuCardSongQue())
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_NOT_MODIFIED);
+  }
+
+  @Test
+  void shouldNotGetRangeOutsideOfFileOfMenuCard() {
+    storeFileOfMenuCardSongQue();
+
+    given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .header("Range", "bytes=100-199")
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+  }
+
+  @Test
+  void shouldNotGetFileOfMenuCardWithoutFile() {
+    removeFileOfMenuCardSongQue();
+
+    given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_NOT_FOUND);
+  }
+
+  @Test
+  void shouldStreamMenuCardForSongque() {
+    byte[] menu = ("This is a menu " + UUID.randomUUID()).getBytes();
+
+    given()
+            .contentType("application/pdf")
+            .body(menu)
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .when()
+            .put("/{menuCardId}")
+            .then()
+            .statusCode(HttpStatus.SC_NO_CONTENT);
+
+    byte[] file = given()
+            .pathParams("id", songque.id)
+            .pathParams("menuCardId", menuCardSongQue.id)
+            .when()
+            .get("/{menuCardId}/file")
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .extract().asByteArray();
+    assertArrayEquals(menu, file);
+  }
+
+  private byte[] storeFileOfMenuCardSongQue() {
+    byte[] content = new byte[100];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    imageStores.forBucket(bucket).put(bucket, menuCardSongQue.getFileName(), content);
+    return content;
+  }
+
+  private String getEntityTagOfMenuCardSongQue() {
+    return "\"" + menuCardSongQue.getFileName() + "\"";
+  }
+
+  @Transactional
+  public void removeFileOfMenuCardSongQue() {
+    menuCardRepository.findById(menuCardSongQue.id).setFileName(null);
+  }
+
   @Test
   @Disabled("Disabled until I found a way to start a dev minio")
   void shouldUploadNewMenuCardForSongque() {
@@ -118,6 +301,21 @@ class MenuCardResourceTest {
     assertEquals(1, menuCardRepository.findAllMenuCardsByShop(songque.id).size());
   }
 
+  @Test
+  void shouldStoreMenuCardWithoutVariants() throws IOException {
+    ByteArrayOutputStream menu = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB), "png", menu);
+
+    menuCardRepository.uploadAndUpdate(menuCardSongQue.id, new ByteArrayInputStream(menu.toByteArray()));
+
+    String fileName = menuCardRepository.findById(menuCardSongQue.id).getFileName();
+    try (StoredObject original = imageStores.forBucket(bucket).get(bucket, fileName, null)) {
+      assertEquals(menu.size(), original.inputStream().readAllBytes().length);
+    }
+    assertThrows(NotFoundException.class,
+            () -> imageStores.forBucket(bucket).get(bucket, ImageSize.SMALL.getKey(fileName), null));
+  }
+
   @AfterEach
   @Transactional
   void tearDown() {
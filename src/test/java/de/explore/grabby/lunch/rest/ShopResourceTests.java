@@ -1,5 +1,6 @@
 package de.explore.grabby.lunch.rest;
 
+import de.explore.grabby.booking.model.image.ImageStatus;
 import de.explore.grabby.lunch.model.Address;
 import de.explore.grabby.lunch.model.OpeningHours;
 import de.explore.grabby.lunch.model.Shop;
@@ -16,13 +17,20 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static de.explore.grabby.lunch.model.Weekday.*;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.fail;
 
 @QuarkusTest
 @TestHTTPEndpoint(ShopResource.class)
@@ -229,6 +237,53 @@ public class ShopResourceTests {
     return openingHoursList;
   }
 
+  @Test
+  void shouldStreamImageForShop() throws IOException, InterruptedException {
+    ByteArrayOutputStream image = new ByteArrayOutputStream();
+    BufferedImage content = new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB);
+    content.setRGB(0, 0, UUID.randomUUID().hashCode());
+    ImageIO.write(content, "png", image);
+
+    given()
+            .contentType("image/png")
+            .body(image.toByteArray())
+            .pathParams("id", shop1.id)
+            .when()
+            .put("/{id}/image")
+            .then()
+            .statusCode(HttpStatus.SC_ACCEPTED);
+
+    awaitImageStatus(shop1.id, ImageStatus.READY);
+    byte[] storedImage = given()
+            .pathParams("id", shop1.id)
+            .when()
+            .get("/{id}/image")
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .extract().asByteArray();
+    assertArrayEquals(image.toByteArray(), storedImage);
+  }
+
+  /**
+   * Polls the shop until its image has the status, the image is processed in the background.
+   */
+  private void awaitImageStatus(long id, ImageStatus status) throws InterruptedException {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      String current = given()
+              .pathParams("id", id)
+              .when()
+              .get("/{id}")
+              .then()
+              .statusCode(HttpStatus.SC_OK)
+              .extract().path("image.status");
+      if (status.name().equals(current)) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+    fail("Image of shop " + id + " did not become " + status);
+  }
+
   @AfterEach
   @Transactional
   void tearDown() {